@@ -0,0 +1,157 @@
+package com.zach.tmc;
+
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The <code>Action</code> class is responsible for storing data about each of
+ * the things a {@link Button} will do on interaction. Actions are compiled
+ * from their level data once, when their {@link Room} is loaded, into one of
+ * these types:
+ * <table border="1" cellpadding="2">
+ *   <caption>Action Types</caption>
+ *   <tr>
+ *     <th>Name</th>
+ *     <th>Description</th>
+ *     <th>Specified by</th>
+ *   </tr>
+ *   <tr>
+ *     <td><b>message</b></td>
+ *     <td>Displays a message.</td>
+ *     <td>message</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>ladder</b></td>
+ *     <td>Moves the player to another floor.</td>
+ *     <td>floor</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>teleporter</b></td>
+ *     <td>Moves the player to another spot on the same floor.</td>
+ *     <td>rx, ry, x, y</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>ending</b></td>
+ *     <td>Ends the game.</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>setter</b></td>
+ *     <td>Sets a key's value specified</td>
+ *     <td>key, value</td>
+ *   </tr>
+ * </table>
+ *
+ * @author Zach K
+ * @see MessageAction
+ * @see LadderAction
+ * @see TeleporterAction
+ * @see EndingAction
+ * @see SetterAction
+ */
+abstract class Action {
+	/** The compiled condition of this <code>Action</code>, or <code>null</code> if it has none. */
+	final BooleanEvaluator.Expression condition;
+	
+	/**
+	 * Constructs an <code>Action</code> with a condition.
+	 *
+	 * @param condition
+	 *            The condition of this <code>Action</code>, or an empty string if
+	 *            it has none.
+	 * @param keyTable
+	 *            The {@link KeyTable} to look up the keys in the condition with.
+	 * @throws IllegalArgumentException
+	 *             If the condition cannot be compiled.
+	 */
+	Action(String condition, KeyTable keyTable) throws IllegalArgumentException {
+		if (condition.isEmpty()) {
+			this.condition = null;
+		} else {
+			this.condition = BooleanEvaluator.compile(condition, keyTable);
+		}
+	}
+	
+	/**
+	 * Constructs an <code>Action</code> with a condition that has already been
+	 * compiled, such as one read from a compiled level.
+	 *
+	 * @param condition
+	 *            The compiled condition of this <code>Action</code>, or
+	 *            <code>null</code> if it has none.
+	 */
+	Action(BooleanEvaluator.Expression condition) {
+		this.condition = condition;
+	}
+	
+	/**
+	 * Compiles an <code>Action</code> from its element in a level being read.
+	 *
+	 * @param reader
+	 *            The reader of the level, at the start of the element which the
+	 *            action holds its data in.
+	 * @param keyTable
+	 *            The {@link KeyTable} to look up keys with.
+	 * @return The compiled <code>Action</code>, or <code>null</code> if the type
+	 *         of the action is unknown (unknown actions do nothing).
+	 * @throws IllegalArgumentException
+	 *             If the action cannot be compiled with the data given.
+	 */
+	static Action compile(XMLStreamReader reader, KeyTable keyTable) throws IllegalArgumentException {
+		String condition = XmlLevelLoader.getAttribute(reader, "condition");
+		
+		// Check what type of Action this is.
+		switch (XmlLevelLoader.getAttribute(reader, "type")) {
+		case "message":
+			return new MessageAction(condition, keyTable, Game.decode(XmlLevelLoader.getAttribute(reader, "message")));
+		case "ladder":
+			return new LadderAction(condition, keyTable, Coordinate.parse(XmlLevelLoader.getAttribute(reader, "floor")));
+		case "teleporter":
+			return new TeleporterAction(condition, keyTable,
+					Coordinate.parse(XmlLevelLoader.getAttribute(reader, "trx")), Coordinate.parse(XmlLevelLoader.getAttribute(reader, "try")),
+					Coordinate.parse(XmlLevelLoader.getAttribute(reader, "tx")), Coordinate.parse(XmlLevelLoader.getAttribute(reader, "ty")));
+		case "ending":
+			return new EndingAction(condition, keyTable);
+		case "setter":
+			return new SetterAction(condition, keyTable, XmlLevelLoader.getAttribute(reader, "key"), XmlLevelLoader.getAttribute(reader, "value"));
+		default:
+			// Anything else does nothing.
+			return null;
+		}
+	}
+	
+	/**
+	 * Activates this <code>Action</code> if its condition is true or empty.
+	 *
+	 * @param game
+	 *            The {@link Game} this <code>Action</code> performs in.
+	 */
+	final void activate(Game game) {
+		if (condition == null || condition.evaluate(game.keys)) {
+			perform(game);
+		}
+	}
+	
+	/**
+	 * Performs this <code>Action</code>, without checking its condition.
+	 *
+	 * @param game
+	 *            The {@link Game} this <code>Action</code> performs in.
+	 */
+	abstract void perform(Game game);
+	
+	/**
+	 * Returns the attributes specific to the type of this <code>Action</code> in
+	 * String form.
+	 *
+	 * @return The attributes of this <code>Action</code> in String form.
+	 */
+	abstract String getAttributes();
+	
+	@Override
+	public String toString() {
+		StringBuilder attributes = new StringBuilder(getAttributes());
+		if (condition != null) {
+			attributes.append(",condition=\"" + condition + "\"");
+		}
+		return "Action[" + attributes + "]";
+	}
+}
@@ -0,0 +1,747 @@
+package com.zach.tmc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The <code>BinaryLevelLoader</code> class reads a level that was compiled by
+ * the {@link LevelCompiler}. Levels in files are mapped into memory, levels in
+ * a {@link LevelPack} share the mapping of their pack, and levels inside the
+ * program are read into memory in one go. Every part of a level is found
+ * through the offsets written in it, so nothing has to be searched for or
+ * parsed from text, and only the floors and rooms that are used are read. This
+ * is the layout of a compiled level:
+ * <table border="1" cellpadding="2">
+ *   <caption>Compiled Level Layout</caption>
+ *   <tr>
+ *     <th>Part</th>
+ *     <th>Contents</th>
+ *   </tr>
+ *   <tr>
+ *     <td><b>header</b></td>
+ *     <td>int {@link #MAGIC}, short {@link #FORMAT_VERSION}, short room width,
+ *     short room height</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>string table</b></td>
+ *     <td>count, then for each string its length and its UTF-8 bytes</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>palette</b></td>
+ *     <td>count (at most {@link #PALETTE_SIZE}), then each char</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>level</b></td>
+ *     <td>the strings of the title, description, message, and version</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>floor index</b></td>
+ *     <td>count, then for each floor its signed number and its offset</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>floor</b></td>
+ *     <td>byte has player, signed rx, ry, x, y, rows, then for each row its
+ *     length and its chars, rooms, then for each room its char reference and
+ *     offset</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>room</b></td>
+ *     <td>the chars of its map, byte transporters, then for each one a byte
+ *     kind, byte from, byte to, and its rx, ry, x, y coordinates, objects, then
+ *     a record for each object, then the actions of each button</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>object</b></td>
+ *     <td>byte type, byte x, byte y, char piece, byte flags, argument (the key
+ *     string of a door, or the amount of actions of a button)</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>action</b></td>
+ *     <td>byte opcode, marked with {@link #CONDITIONAL} if its condition
+ *     expression follows, then the operands of the opcode</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>expression</b></td>
+ *     <td>byte opcode, then a key string for a key, one expression for "!", or
+ *     a count and that many expressions for "AND" and "OR"</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>coordinate</b></td>
+ *     <td>byte relative, signed value</td>
+ *   </tr>
+ * </table>
+ * Counts, lengths, offsets, and strings (written as their index in the string
+ * table) are variable-length numbers of seven bits to a byte, lowest first,
+ * with the highest bit set on every byte but the last. Signed numbers are
+ * folded first so that small negative numbers stay small. Chars are a single
+ * byte, their index in the palette, so a room's map takes one byte for each
+ * tile. Offsets count from the end of the floor index. Conditions and the
+ * values of setters are written already compiled, so no text is parsed when
+ * they are read. Counts and offsets are checked against the size of the level
+ * before they are used, so a corrupted level is reported instead of read past
+ * its end.
+ *
+ * @author Zach K
+ */
+public class BinaryLevelLoader extends LevelLoader {
+	/** The number every compiled level starts with ("TMCL"). */
+	public static final int MAGIC = 0x544D434C;
+	/** The version of the compiled level format. */
+	public static final int FORMAT_VERSION = 2;
+	/** The file extension of compiled levels. */
+	public static final String EXTENSION = ".tmcl";
+	
+	/** The kind of a transporter. */
+	static final byte TRANSPORTER = 0;
+	/** The kind of a transmitter. */
+	static final byte TRANSMITTER = 1;
+	
+	/** The type of a {@link Block}. */
+	static final byte BLOCK = 0;
+	/** The type of a {@link Door}. */
+	static final byte DOOR = 1;
+	/** The type of a {@link Button}. */
+	static final byte BUTTON = 2;
+	
+	/** The flag set when an object is collidable. */
+	static final int COLLIDABLE = 1;
+	/** The flag set when an object notifies the player. */
+	static final int NOTIFY = 2;
+	/** The flag set when an object activates instantly. */
+	static final int INSTANT = 4;
+	/** The flag set when a door is inverted. */
+	static final int INVERTED = 8;
+	
+	/** The opcode of a {@link MessageAction}. Its operand is its message. */
+	static final byte MESSAGE = 0;
+	/** The opcode of a {@link LadderAction}. Its operand is its floor coordinate. */
+	static final byte LADDER = 1;
+	/** The opcode of a {@link TeleporterAction}. Its operands are its rx, ry, x, and y coordinates. */
+	static final byte TELEPORTER = 2;
+	/** The opcode of an {@link EndingAction}. It has no operands. */
+	static final byte ENDING = 3;
+	/** The opcode of a {@link SetterAction}. Its operands are its key string and value expression. */
+	static final byte SETTER = 4;
+	/** The bit set on the opcode of an {@link Action} that has a condition. */
+	static final int CONDITIONAL = 0x80;
+	
+	/** The opcode of the value "true". */
+	static final byte TRUE = 0;
+	/** The opcode of the value "false". */
+	static final byte FALSE = 1;
+	/** The opcode of a key. Its operand is the key's name string. */
+	static final byte KEY = 2;
+	/** The opcode of "!". Its operand is the expression it inverts. */
+	static final byte NOT = 3;
+	/** The opcode of "AND". Its operands are a count and that many expressions. */
+	static final byte AND = 4;
+	/** The opcode of "OR". Its operands are a count and that many expressions. */
+	static final byte OR = 5;
+	
+	/** The most different characters a compiled level can use, since each is written as one byte. */
+	static final int PALETTE_SIZE = 256;
+	
+	/** The level as it was given, or <code>null</code> if it is read from its {@link #levelPath}. */
+	private final ByteBuffer source;
+	/** The {@link LevelPack} the level is in, or <code>null</code> if it is not in one. */
+	private final LevelPack pack;
+	/** All of the bytes of the level, read by {@link #readHeader()}. */
+	private volatile ByteBuffer data;
+	/** The string table of the level. */
+	private String[] strings;
+	/** The palette of the level, which the characters of its maps are indexes into. */
+	private char[] palette;
+	/** The offsets of the floors, by their number. */
+	private final Map<Integer, Integer> floorOffsets = new HashMap<Integer, Integer>();
+	/** The position in {@link #data} offsets count from. */
+	private int bodyStart;
+	
+	/**
+	 * Constructs a <code>BinaryLevelLoader</code> for a level.
+	 *
+	 * @param levelPath
+	 *            The path to the level. Paths that start with "/" are resources
+	 *            inside the program.
+	 */
+	public BinaryLevelLoader(String levelPath) {
+		super(levelPath);
+		this.source = null;
+		this.pack = null;
+	}
+	
+	/**
+	 * Constructs a <code>BinaryLevelLoader</code> for a level that is already in
+	 * memory, such as a level in a {@link LevelPack}.
+	 *
+	 * @param levelPath
+	 *            The path to the level, used to refer to it.
+	 * @param source
+	 *            The level, starting at the start of the buffer.
+	 */
+	public BinaryLevelLoader(String levelPath, ByteBuffer source) {
+		this(levelPath, source, null);
+	}
+	
+	/**
+	 * Constructs a <code>BinaryLevelLoader</code> for a level in a
+	 * {@link LevelPack}, which is closed when this
+	 * <code>BinaryLevelLoader</code> is.
+	 *
+	 * @param levelPath
+	 *            The path to the level, used to refer to it.
+	 * @param source
+	 *            The level, starting at the start of the buffer.
+	 * @param pack
+	 *            The {@link LevelPack} the level is in.
+	 */
+	BinaryLevelLoader(String levelPath, ByteBuffer source, LevelPack pack) {
+		super(levelPath);
+		this.source = source;
+		this.pack = pack;
+	}
+	
+	/**
+	 * Opens the level, then reads its title, description, message, version,
+	 * string table, palette, and floor index.
+	 *
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws IllegalArgumentException
+	 *             If the level is not a compiled level, was compiled for a
+	 *             different version of the format or size of room, or is
+	 *             corrupted.
+	 */
+	@Override
+	public synchronized void readHeader() throws IOException, IllegalArgumentException {
+		ByteBuffer data;
+		if (source != null) {
+			data = source.duplicate();
+		} else if (levelPath.startsWith("/") && Game.class.getResource(levelPath) != null) {
+			data = ByteBuffer.wrap(readAll(open(levelPath)));
+		} else {
+			data = map(levelPath);
+		}
+		
+		// Check that the level is a compiled level this program can read.
+		if (data.remaining() < 10 || data.getInt() != MAGIC) {
+			throw new IllegalArgumentException("The level is not a compiled level");
+		}
+		int formatVersion = data.getShort();
+		if (formatVersion != FORMAT_VERSION) {
+			throw new IllegalArgumentException("The compiled level is format version " + formatVersion
+					+ ", but only version " + FORMAT_VERSION + " can be read");
+		}
+		if (data.getShort() != Game.ROOM_WIDTH || data.getShort() != Game.ROOM_HEIGHT) {
+			throw new IllegalArgumentException("The compiled level was made for a different room size");
+		}
+		
+		try {
+			readIndex(data);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("The compiled level is corrupted", e);
+		}
+		this.data = data;
+	}
+	
+	/**
+	 * Reads the string table, palette, title, description, message, version,
+	 * and floor index of the level.
+	 *
+	 * @param data
+	 *            The level, just after its header.
+	 * @throws IllegalArgumentException
+	 *             If a count or string in the level is out of range.
+	 */
+	private void readIndex(ByteBuffer data) throws IllegalArgumentException {
+		// Read the string table.
+		String[] strings = new String[checkCount(data, readVarInt(data), 1)];
+		for (int i = 0; i < strings.length; i++) {
+			byte[] bytes = new byte[checkCount(data, readVarInt(data), 1)];
+			data.get(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		this.strings = strings;
+		
+		// Read the palette.
+		int paletteSize = checkCount(data, readVarInt(data), 1);
+		if (paletteSize > PALETTE_SIZE) {
+			throw new IllegalArgumentException("The compiled level is corrupted");
+		}
+		char[] palette = new char[paletteSize];
+		for (int i = 0; i < palette.length; i++) {
+			palette[i] = (char) readVarInt(data);
+		}
+		this.palette = palette;
+		
+		title = getString(readVarInt(data));
+		description = getString(readVarInt(data));
+		message = getString(readVarInt(data));
+		version = getString(readVarInt(data));
+		
+		// Read the floor index.
+		floorOffsets.clear();
+		int floorCount = checkCount(data, readVarInt(data), 2);
+		for (int i = 0; i < floorCount; i++) {
+			int number = readSignedVarInt(data);
+			floorOffsets.put(number, readVarInt(data));
+		}
+		
+		bodyStart = data.position();
+	}
+	
+	@Override
+	public Floor loadFloor(int floorNumber) throws IOException, IllegalArgumentException {
+		ByteBuffer data;
+		Integer offset;
+		synchronized (this) {
+			if (this.data == null) {
+				readHeader();
+			}
+			data = this.data.duplicate();
+			offset = floorOffsets.get(floorNumber);
+		}
+		if (offset == null) {
+			throw new IllegalArgumentException("Floor #" + floorNumber + " does not exist");
+		}
+		seek(data, offset);
+		
+		try {
+			return readFloor(data, floorNumber);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Floor #" + floorNumber + " in the compiled level is corrupted", e);
+		}
+	}
+	
+	/**
+	 * Reads a floor's record in the level.
+	 *
+	 * @param data
+	 *            The level, at the start of the floor's record.
+	 * @param floorNumber
+	 *            The number of the floor.
+	 * @return The floor that was read.
+	 * @throws IllegalArgumentException
+	 *             If a count or offset in the record is out of range.
+	 */
+	private Floor readFloor(ByteBuffer data, int floorNumber) throws IllegalArgumentException {
+		// Read where the player starts.
+		boolean hasPlayer = data.get() != 0;
+		int playerRx = readSignedVarInt(data);
+		int playerRy = readSignedVarInt(data);
+		int playerX = readSignedVarInt(data);
+		int playerY = readSignedVarInt(data);
+		
+		// Read the map.
+		char[][] map = new char[checkCount(data, readVarInt(data), 1)][];
+		for (int i = 0; i < map.length; i++) {
+			map[i] = readChars(data, readVarInt(data));
+		}
+		
+		// Read the room index. The rooms themselves are only read when they are built.
+		int roomCount = checkCount(data, readVarInt(data), 2);
+		Map<Character, RoomSource> rooms = new HashMap<Character, RoomSource>();
+		for (int i = 0; i < roomCount; i++) {
+			char reference = readChar(data);
+			int offset = readVarInt(data);
+			if (offset < 0 || offset >= data.limit() - bodyStart) {
+				throw new IllegalArgumentException("The offset of room '" + reference + "' is outside of the compiled level");
+			}
+			rooms.put(reference, new BinaryRoomSource(this, offset));
+		}
+		
+		if (!hasPlayer) {
+			return new Floor(floorNumber, map, rooms);
+		}
+		return new Floor(floorNumber, map, rooms, playerRx, playerRy, playerX, playerY);
+	}
+	
+	/**
+	 * Closes this <code>BinaryLevelLoader</code>, along with the
+	 * {@link LevelPack} the level is in.
+	 */
+	@Override
+	public void close() {
+		if (pack != null) {
+			pack.close();
+		}
+	}
+	
+	/**
+	 * Builds a {@link RoomDefinition} from its record in the level.
+	 *
+	 * @param offset
+	 *            The offset of the room's record.
+	 * @param reference
+	 *            The reference character of the room.
+	 * @return The room that was built.
+	 * @throws IllegalArgumentException
+	 *             If the room cannot be created with the data given, or its
+	 *             record is corrupted.
+	 */
+	RoomDefinition readRoom(int offset, char reference) throws IllegalArgumentException {
+		ByteBuffer data = this.data.duplicate();
+		seek(data, offset);
+		RoomDefinition room = new RoomDefinition(reference);
+		
+		// Read the map of the room. It is set once the objects are in, so their pieces are put on top of it.
+		char[][] rows = new char[Game.ROOM_HEIGHT][];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = readChars(data, Game.ROOM_WIDTH);
+		}
+		
+		// Read the transporters and transmitters.
+		int transporterCount = data.get() & 0xFF;
+		Game.Direction[] directions = Game.Direction.values();
+		for (int i = 0; i < transporterCount; i++) {
+			byte kind = data.get();
+			Game.Direction from = getDirection(directions, data.get());
+			Game.Direction to = getDirection(directions, data.get());
+			Transporter transporter = new Transporter(to, readCoordinate(data), readCoordinate(data), readCoordinate(data), readCoordinate(data));
+			(kind == TRANSMITTER ? room.transmitters : room.transporters).put(from, transporter);
+		}
+		
+		// Read the object records.
+		int objectCount = checkCount(data, readVarInt(data), 6);
+		Button[] buttons = new Button[objectCount];
+		int[] actionCounts = new int[objectCount];
+		for (int i = 0; i < objectCount; i++) {
+			byte type = data.get();
+			int x = data.get();
+			int y = data.get();
+			char piece = readChar(data);
+			int flags = data.get();
+			int argument = readVarInt(data);
+			
+			RoomObject object;
+			switch (type) {
+			case BLOCK:
+				object = new Block(piece);
+				break;
+			case DOOR:
+				String keyName = getString(argument);
+				object = new Door(piece, keyTable.intern(keyName), keyName, (flags & INVERTED) != 0);
+				break;
+			case BUTTON:
+				buttons[i] = new Button(piece);
+				actionCounts[i] = checkCount(data, argument, 1);
+				object = buttons[i];
+				break;
+			default:
+				throw new IllegalArgumentException("There is an object of an unknown type in room '" + reference + "'");
+			}
+			object.collidable = (flags & COLLIDABLE) != 0;
+			object.notify = (flags & NOTIFY) != 0;
+			object.instant = (flags & INSTANT) != 0;
+			room.putObject(object, x, y);
+		}
+		
+		// Read the actions of each button, in the same order as the buttons.
+		for (int i = 0; i < objectCount; i++) {
+			for (int j = 0; j < actionCounts[i]; j++) {
+				buttons[i].addAction(readAction(data));
+			}
+		}
+		
+		room.setMap(rows);
+		return room;
+	}
+	
+	/**
+	 * Reads an {@link Action}.
+	 *
+	 * @param data
+	 *            The level, at the start of the action.
+	 * @return The action that was read.
+	 * @throws IllegalArgumentException
+	 *             If the action or its condition has an unknown opcode.
+	 */
+	private Action readAction(ByteBuffer data) throws IllegalArgumentException {
+		int opcode = data.get() & 0xFF;
+		BooleanEvaluator.Expression condition = null;
+		if ((opcode & CONDITIONAL) != 0) {
+			condition = readExpression(data);
+		}
+		
+		switch (opcode & ~CONDITIONAL) {
+		case MESSAGE:
+			return new MessageAction(condition, getString(readVarInt(data)));
+		case LADDER:
+			return new LadderAction(condition, readCoordinate(data));
+		case TELEPORTER:
+			return new TeleporterAction(condition, readCoordinate(data), readCoordinate(data), readCoordinate(data), readCoordinate(data));
+		case ENDING:
+			return new EndingAction(condition);
+		case SETTER:
+			return new SetterAction(condition, keyTable, getString(readVarInt(data)), readExpression(data));
+		default:
+			throw new IllegalArgumentException("There is an action with an unknown opcode (" + opcode + ")");
+		}
+	}
+	
+	/**
+	 * Reads a compiled expression, looking up its keys in the
+	 * {@link #keyTable}.
+	 *
+	 * @param data
+	 *            The level, at the start of the expression.
+	 * @return The expression that was read.
+	 * @throws IllegalArgumentException
+	 *             If a part of the expression has an unknown opcode.
+	 */
+	private BooleanEvaluator.Expression readExpression(ByteBuffer data) throws IllegalArgumentException {
+		byte opcode = data.get();
+		switch (opcode) {
+		case TRUE:
+			return BooleanEvaluator.TRUE;
+		case FALSE:
+			return BooleanEvaluator.FALSE;
+		case KEY:
+			String name = getString(readVarInt(data));
+			return new BooleanEvaluator.Key(keyTable.intern(name), name);
+		case NOT:
+			return new BooleanEvaluator.Not(readExpression(data));
+		case AND:
+			return new BooleanEvaluator.And(readOperands(data));
+		case OR:
+			return new BooleanEvaluator.Or(readOperands(data));
+		default:
+			throw new IllegalArgumentException("There is an expression with an unknown opcode (" + opcode + ")");
+		}
+	}
+	
+	/**
+	 * Reads the operands of an "AND" or "OR" gate.
+	 *
+	 * @param data
+	 *            The level, at the count of the operands.
+	 * @return The operands that were read.
+	 * @throws IllegalArgumentException
+	 *             If the count is out of range or an operand has an unknown
+	 *             opcode.
+	 */
+	private BooleanEvaluator.Expression[] readOperands(ByteBuffer data) throws IllegalArgumentException {
+		BooleanEvaluator.Expression[] operands = new BooleanEvaluator.Expression[checkCount(data, readVarInt(data), 1)];
+		for (int i = 0; i < operands.length; i++) {
+			operands[i] = readExpression(data);
+		}
+		return operands;
+	}
+	
+	/**
+	 * Reads a {@link Coordinate}.
+	 *
+	 * @param data
+	 *            The level, at the start of the coordinate.
+	 * @return The coordinate that was read.
+	 */
+	private static Coordinate readCoordinate(ByteBuffer data) {
+		boolean relative = data.get() != 0;
+		return new Coordinate(relative, readSignedVarInt(data));
+	}
+	
+	/**
+	 * Reads a number written by {@link LevelCompiler#writeVarInt}.
+	 *
+	 * @param data
+	 *            The level, at the start of the number.
+	 * @return The number.
+	 * @throws IllegalArgumentException
+	 *             If the number does not fit in an <code>int</code>.
+	 */
+	private static int readVarInt(ByteBuffer data) throws IllegalArgumentException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = data.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("The compiled level is corrupted");
+	}
+	
+	/**
+	 * Reads a number written by {@link LevelCompiler#writeSignedVarInt}.
+	 *
+	 * @param data
+	 *            The level, at the start of the number.
+	 * @return The number.
+	 * @throws IllegalArgumentException
+	 *             If the number does not fit in an <code>int</code>.
+	 */
+	private static int readSignedVarInt(ByteBuffer data) throws IllegalArgumentException {
+		int folded = readVarInt(data);
+		return folded >>> 1 ^ -(folded & 1);
+	}
+	
+	/**
+	 * Gets a direction by its ordinal.
+	 *
+	 * @param directions
+	 *            Every direction, in order.
+	 * @param ordinal
+	 *            The ordinal of the direction.
+	 * @return The direction.
+	 * @throws IllegalArgumentException
+	 *             If there is no direction with that ordinal.
+	 */
+	private static Game.Direction getDirection(Game.Direction[] directions, int ordinal) throws IllegalArgumentException {
+		if (ordinal < 0 || ordinal >= directions.length) {
+			throw new IllegalArgumentException("There is no direction #" + ordinal);
+		}
+		return directions[ordinal];
+	}
+	
+	/**
+	 * Gets a string from the string table.
+	 *
+	 * @param index
+	 *            The index of the string.
+	 * @return The string.
+	 * @throws IllegalArgumentException
+	 *             If there is no string with that index.
+	 */
+	private String getString(int index) throws IllegalArgumentException {
+		if (index < 0 || index >= strings.length) {
+			throw new IllegalArgumentException("There is no string #" + index + " in the level");
+		}
+		return strings[index];
+	}
+	
+	/**
+	 * Reads a run of characters, each written as its index in the palette.
+	 *
+	 * @param data
+	 *            The level, at the start of the characters.
+	 * @param length
+	 *            The amount of characters.
+	 * @return The characters.
+	 * @throws IllegalArgumentException
+	 *             If there are not that many characters left in the level, or a
+	 *             character is not in the palette.
+	 */
+	private char[] readChars(ByteBuffer data, int length) throws IllegalArgumentException {
+		char[] chars = new char[checkCount(data, length, 1)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = readChar(data);
+		}
+		return chars;
+	}
+	
+	/**
+	 * Reads a character written as its index in the palette.
+	 *
+	 * @param data
+	 *            The level, at the character.
+	 * @return The character.
+	 * @throws IllegalArgumentException
+	 *             If the character is not in the palette.
+	 */
+	private char readChar(ByteBuffer data) throws IllegalArgumentException {
+		int index = data.get() & 0xFF;
+		if (index >= palette.length) {
+			throw new IllegalArgumentException("There is no character #" + index + " in the palette of the level");
+		}
+		return palette[index];
+	}
+	
+	/**
+	 * Checks a count read from the level before anything is made for it, so a
+	 * corrupted count cannot ask for more than the level could hold.
+	 *
+	 * @param data
+	 *            The level, just after the count.
+	 * @param count
+	 *            The count.
+	 * @param size
+	 *            The least amount of bytes each of the things counted takes up.
+	 * @return The count.
+	 * @throws IllegalArgumentException
+	 *             If the count is negative or there is not enough of the level
+	 *             left for it.
+	 */
+	private static int checkCount(ByteBuffer data, int count, int size) throws IllegalArgumentException {
+		if (count < 0 || count > data.remaining() / size) {
+			throw new IllegalArgumentException("The compiled level is corrupted");
+		}
+		return count;
+	}
+	
+	/**
+	 * Moves to an offset in the level.
+	 *
+	 * @param data
+	 *            The level.
+	 * @param offset
+	 *            The offset to move to.
+	 * @throws IllegalArgumentException
+	 *             If the offset is outside of the level.
+	 */
+	private void seek(ByteBuffer data, int offset) throws IllegalArgumentException {
+		if (offset < 0 || offset >= data.limit() - bodyStart) {
+			throw new IllegalArgumentException("The offset " + offset + " is outside of the compiled level");
+		}
+		data.position(bodyStart + offset);
+	}
+	
+	/**
+	 * Maps a file into memory. The mapping stays valid after the file is closed.
+	 *
+	 * @param path
+	 *            The path to the file.
+	 * @return The mapping of the whole file.
+	 * @throws IOException
+	 *             If the file cannot be opened or mapped.
+	 */
+	static ByteBuffer map(String path) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(new File(path), "r");
+		try {
+			FileChannel channel = file.getChannel();
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			file.close();
+		}
+	}
+}
+
+/**
+ * The <code>BinaryRoomSource</code> class is a {@link RoomSource} that points
+ * to a {@link RoomDefinition}'s record in a compiled level.
+ *
+ * @author Zach K
+ */
+class BinaryRoomSource extends RoomSource {
+	/** The {@link BinaryLevelLoader} that holds the record. */
+	final BinaryLevelLoader loader;
+	/** The offset of the record. */
+	final int offset;
+	
+	/**
+	 * Constructs a <code>BinaryRoomSource</code>.
+	 *
+	 * @param loader
+	 *            The {@link BinaryLevelLoader} that holds the record.
+	 * @param offset
+	 *            The offset of the record.
+	 */
+	BinaryRoomSource(BinaryLevelLoader loader, int offset) {
+		this.loader = loader;
+		this.offset = offset;
+	}
+	
+	@Override
+	RoomDefinition build(char reference) throws IllegalArgumentException {
+		try {
+			return loader.readRoom(offset, reference);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Room '" + reference + "' in the compiled level is corrupted", e);
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package com.zach.tmc;
+
+/**
+ * The <code>Block</code> class is a simple {@link RoomObject} that does nothing
+ * special but sit in the {@link Room}.
+ * 
+ * @author Zach K
+ */
+class Block extends RoomObject {
+	/**
+	 * Constructs a <code>Block</code> with a piece.
+	 * 
+	 * @param piece
+	 *            The piece of the <code>Block</code>.
+	 */
+	Block(char piece) {
+		super(piece);
+		
+		this.collidable = true;
+		this.notify = false;
+		this.instant = false;
+	}
+}
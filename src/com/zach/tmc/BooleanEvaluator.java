@@ -1,103 +1,350 @@
 package com.zach.tmc;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+
 /**
- * The <code>BooleanEvaluator</code> class evaluates a string expression to see
- * if it is true or false. "AND" and "OR" are written literally, unlike the
- * operators "&amp;" and "|". It does not short-circuit.
- * 
+ * The <code>BooleanEvaluator</code> class compiles a string expression into an
+ * {@link Expression} that can be evaluated to see if it is true or false.
+ * "AND" and "OR" are written literally, unlike the operators "&amp;" and "|".
+ * Keys are written in brackets, like "[key]", and are looked up by their ID in
+ * a {@link KeyTable}. "AND" comes before "OR", "!" inverts the value after it,
+ * and any value other than "true" (and incorrect syntax) renders as false.
+ * Expressions are compiled once and short-circuit when they are evaluated.
+ * The parts of a compiled expression can be seen by the rest of the package,
+ * so the {@link LevelCompiler} can write them out and the
+ * {@link BinaryLevelLoader} can build them again without any text to parse.
+ *
  * @author Zach K
  */
 public class BooleanEvaluator {
 	
 	/**
-	 * Evaluates a string expression using to see if it is true or false.
-	 * 
+	 * Compiles a string expression into an {@link Expression}.
+	 *
+	 * @param expression
+	 *            The expression to compile.
+	 * @param keyTable
+	 *            The {@link KeyTable} to look up the IDs of keys in.
+	 * @return The compiled expression.
+	 * @throws IllegalArgumentException
+	 *             If there are uneven parenthesis or a key is missing its closing
+	 *             bracket.
+	 */
+	public static Expression compile(String expression, KeyTable keyTable) throws IllegalArgumentException {
+		Parser parser = new Parser(expression, keyTable);
+		Expression compiled = parser.parseOr();
+		
+		// Anything left over after the whole expression means there was an extra closing parenthesis.
+		if (parser.skipWhitespace() < expression.length()) {
+			throw new IllegalArgumentException("Uneven set of parenthesis");
+		}
+		return compiled;
+	}
+	
+	/**
+	 * Evaluates a string expression without any keys to see if it is true or
+	 * false.
+	 *
 	 * @param expression
 	 *            The expression to evaluate.
 	 * @return The answer of the expression.
 	 * @throws IllegalArgumentException
 	 *             If there are uneven parenthesis.
-	 * @throws StringIndexOutOfBoundsException
-	 *             If a in set of parenthesis the closing one. is before the
-	 *             opening one.
-	 * @see #miniEval(StringBuilder, int, int, boolean)
+	 * @see #compile(String, KeyTable)
+	 */
+	public static boolean eval(String expression) throws IllegalArgumentException {
+		return compile(expression, new KeyTable()).evaluate(new BitSet());
+	}
+	
+	/**
+	 * The <code>Expression</code> class is a compiled expression. Evaluating it
+	 * does not allocate anything.
+	 *
+	 * @author Zach K
+	 */
+	public static abstract class Expression {
+		/**
+		 * Evaluates this <code>Expression</code>.
+		 *
+		 * @param keys
+		 *            The active keys, by their ID.
+		 * @return The answer of this <code>Expression</code>.
+		 */
+		public abstract boolean evaluate(BitSet keys);
+	}
+	
+	/** The <code>Expression</code> used for the value "true". */
+	static final Expression TRUE = new Expression() {
+		@Override
+		public boolean evaluate(BitSet keys) {
+			return true;
+		}
+		
+		@Override
+		public String toString() {
+			return "true";
+		}
+	};
+	
+	/** The <code>Expression</code> used for the value "false" and anything else that is not "true". */
+	static final Expression FALSE = new Expression() {
+		@Override
+		public boolean evaluate(BitSet keys) {
+			return false;
+		}
+		
+		@Override
+		public String toString() {
+			return "false";
+		}
+	};
+	
+	/**
+	 * An <code>Expression</code> that checks if a key is active.
+	 */
+	static class Key extends Expression {
+		/** The ID of the key. */
+		final int id;
+		/** The name of the key. */
+		final String name;
+		
+		Key(int id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+		
+		@Override
+		public boolean evaluate(BitSet keys) {
+			return keys.get(id);
+		}
+		
+		@Override
+		public String toString() {
+			return "[" + name + "]";
+		}
+	}
+	
+	/**
+	 * An <code>Expression</code> that inverts another.
+	 */
+	static class Not extends Expression {
+		/** The <code>Expression</code> to invert. */
+		final Expression operand;
+		
+		Not(Expression operand) {
+			this.operand = operand;
+		}
+		
+		@Override
+		public boolean evaluate(BitSet keys) {
+			return !operand.evaluate(keys);
+		}
+		
+		@Override
+		public String toString() {
+			return "!" + operand;
+		}
+	}
+	
+	/**
+	 * An "AND" gate. It stops at the first false operand.
+	 */
+	static class And extends Expression {
+		/** The operands of the gate. */
+		final Expression[] operands;
+		
+		And(Expression[] operands) {
+			this.operands = operands;
+		}
+		
+		@Override
+		public boolean evaluate(BitSet keys) {
+			for (int i = 0; i < operands.length; i++) {
+				if (!operands[i].evaluate(keys)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		@Override
+		public String toString() {
+			return join(operands, " AND ");
+		}
+	}
+	
+	/**
+	 * An "OR" gate. It stops at the first true operand.
 	 */
-	public static boolean eval(String expression) throws IllegalArgumentException, StringIndexOutOfBoundsException {
-		// Create a StringBuilder out of the expression that can be changed.
-		StringBuilder expressionPiece = new StringBuilder(expression);
-		
-		// Check for mini-expressions inside of parenthesis.
-		int open = expressionPiece.lastIndexOf("(");
-		int closed = expressionPiece.indexOf(")", open);
-		while (open != -1 || closed != -1) {
-			// While there are parenthesis, evaluate the expression inside them.
-			if (open == -1 || closed == -1) {
-				throw new IllegalArgumentException("Uneven set of parenthesis");
+	static class Or extends Expression {
+		/** The operands of the gate. */
+		final Expression[] operands;
+		
+		Or(Expression[] operands) {
+			this.operands = operands;
+		}
+		
+		@Override
+		public boolean evaluate(BitSet keys) {
+			for (int i = 0; i < operands.length; i++) {
+				if (operands[i].evaluate(keys)) {
+					return true;
+				}
 			}
-			
-			miniEval(expressionPiece, open + 1, closed, true);
-			
-			open = expressionPiece.indexOf("(");
-			closed = expressionPiece.indexOf(")", open);
+			return false;
 		}
 		
-		// Evaluate the final expression.
-		miniEval(expressionPiece, 0, expressionPiece.length(), false);
-		return Boolean.valueOf(expressionPiece.toString());
+		@Override
+		public String toString() {
+			return join(operands, " OR ");
+		}
 	}
 	
 	/**
-	 * Evaluates a part of a expression and updates that spot. It does not support
-	 * multiple sets of parenthesis. A side note is that since this uses
-	 * {@link Boolean#valueOf(boolean)}, any value other than "true" (and incorrect
-	 * syntax) renders as false.
-	 * 
-	 * @param expression
-	 *            The expression to take a part of and update.
-	 * @param start
-	 *            The start of the expression.
-	 * @param end
-	 *            The end of the expression.
-	 * @param parenthesis
-	 *            Whether or not this expression has parenthesis around it that need
-	 *            to be deleted.
-	 * @see #eval(String)
+	 * Joins the operands of a gate together in parenthesis.
+	 *
+	 * @param operands
+	 *            The operands to join.
+	 * @param separator
+	 *            The separator to put between each operand.
+	 * @return The joined operands.
+	 */
+	private static String join(Expression[] operands, String separator) {
+		StringBuilder text = new StringBuilder("(");
+		for (int i = 0; i < operands.length; i++) {
+			if (i > 0) {
+				text.append(separator);
+			}
+			text.append(operands[i]);
+		}
+		return text.append(")").toString();
+	}
+	
+	/**
+	 * The <code>Parser</code> class reads a string expression from left to right
+	 * and builds an {@link Expression} out of it.
 	 */
-	public static void miniEval(StringBuilder expression, int start, int end, boolean parenthesis) {
-		// Split the expression into a series of "AND" gates.
-		String[] andGates = expression.substring(start, end).split("OR");
-		// Evaluate the "AND" gates. If any are true, than the larger "OR" gate is true.
-		boolean isOrTrue = false;
-		for (String andGate : andGates) {
-			// Split each "AND" gate into a series of values.
-			String[] values = andGate.split("AND");
-			// Evaluate the values. If any are false, than the "AND" gate is false.
-			boolean isAndTrue = true;
-			for (String value : values) {
-				value = value.trim();
-				if (value.startsWith("!")) {
-					// In the case that there is a '!' at the start of each value, the value is inverted.
-					if (Boolean.valueOf(value.substring(1))) {
-						isAndTrue = false;
-					}
-				} else {
-					if (!Boolean.valueOf(value)) {
-						isAndTrue = false;
-					}
+	private static class Parser {
+		/** The expression being parsed. */
+		private final String text;
+		/** The {@link KeyTable} to look up the IDs of keys in. */
+		private final KeyTable keyTable;
+		/** The position of the parser in {@link #text}. */
+		private int position = 0;
+		
+		Parser(String text, KeyTable keyTable) {
+			this.text = text;
+			this.keyTable = keyTable;
+		}
+		
+		/**
+		 * Parses a series of "AND" gates joined by "OR".
+		 *
+		 * @return The parsed expression.
+		 */
+		Expression parseOr() {
+			ArrayList<Expression> operands = new ArrayList<Expression>();
+			operands.add(parseAnd());
+			while (accept("OR")) {
+				operands.add(parseAnd());
+			}
+			if (operands.size() == 1) {
+				return operands.get(0);
+			}
+			return new Or(operands.toArray(new Expression[operands.size()]));
+		}
+		
+		/**
+		 * Parses a series of values joined by "AND".
+		 *
+		 * @return The parsed expression.
+		 */
+		Expression parseAnd() {
+			ArrayList<Expression> operands = new ArrayList<Expression>();
+			operands.add(parseValue());
+			while (accept("AND")) {
+				operands.add(parseValue());
+			}
+			if (operands.size() == 1) {
+				return operands.get(0);
+			}
+			return new And(operands.toArray(new Expression[operands.size()]));
+		}
+		
+		/**
+		 * Parses a single value: an inverted value, an expression in parenthesis, a
+		 * key, or a literal.
+		 *
+		 * @return The parsed expression.
+		 */
+		Expression parseValue() {
+			if (accept("!")) {
+				return new Not(parseValue());
+			}
+			if (accept("(")) {
+				Expression inner = parseOr();
+				if (!accept(")")) {
+					throw new IllegalArgumentException("Uneven set of parenthesis");
+				}
+				return inner;
+			}
+			if (accept("[")) {
+				int end = text.indexOf(']', position);
+				if (end == -1) {
+					throw new IllegalArgumentException("Missing ']' after key \"" + text.substring(position) + "\"");
 				}
+				String name = text.substring(position, end);
+				position = end + 1;
+				return new Key(keyTable.intern(name), name);
+			}
+			
+			// Anything else is read as a literal up to the next space, symbol, or gate.
+			int start = position;
+			while (position < text.length() && !atDelimiter()) {
+				position++;
 			}
-			// If the single "AND" gate is true, then that means the larger "OR" gate is true. This does not end the loop.
-			if (isAndTrue) {
-				isOrTrue = true;
+			return Boolean.parseBoolean(text.substring(start, position)) ? TRUE : FALSE;
+		}
+		
+		/**
+		 * Skips past a token if it is next in the expression.
+		 *
+		 * @param token
+		 *            The token to look for.
+		 * @return True if the token was next and skipped, false otherwise.
+		 */
+		boolean accept(String token) {
+			skipWhitespace();
+			if (text.startsWith(token, position)) {
+				position += token.length();
+				return true;
+			}
+			return false;
+		}
+		
+		/**
+		 * Skips past any whitespace.
+		 *
+		 * @return The position after the whitespace.
+		 */
+		int skipWhitespace() {
+			while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+				position++;
 			}
+			return position;
 		}
 		
-		// This part of the code replaces the part of the expression specified with the "OR" gate's value.
-		if (parenthesis) {
-			// In the case of parenthesis, the code also replaces those parenthesis with the expression.
-			expression.replace(start - 1, end + 1, String.valueOf(isOrTrue));
-		} else {
-			expression.replace(start, end, String.valueOf(isOrTrue));
+		/**
+		 * Checks if the parser is at the end of a literal.
+		 *
+		 * @return True if the next character is a space or symbol, or the start of a
+		 *         gate.
+		 */
+		boolean atDelimiter() {
+			char c = text.charAt(position);
+			return Character.isWhitespace(c) || c == '(' || c == ')' || c == '[' || c == '!'
+					|| text.startsWith("AND", position) || text.startsWith("OR", position);
 		}
 	}
 }
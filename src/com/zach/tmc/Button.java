@@ -0,0 +1,107 @@
+package com.zach.tmc;
+
+import java.util.ArrayList;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The <code>Button</code> class is a {@link RoomObject} that performs actions
+ * when interacted with.
+ * 
+ * @author Zach K
+ */
+class Button extends RoomObject {
+	/**	A list of {@link Action}s this Button performs on interaction. */
+	ArrayList<Action> actions = new ArrayList<>(3);
+	
+	/**
+	 * Constructs a <code>Button</code> with a piece and no actions.
+	 * 
+	 * @param piece
+	 *            The piece of the <code>Button</code>.
+	 */
+	Button(char piece) {
+		super(piece);
+		this.collidable = false;
+		this.notify = true;
+		this.instant = false;
+	}
+	
+	/**
+	 * Constructs a <code>Button</code> with a piece, compiling its actions from
+	 * a level being read.
+	 * 
+	 * @param piece
+	 *            The piece of the <code>Button</code>.
+	 * @param reader
+	 *            The reader of the level, at the start of the button's element,
+	 *            which holds the <code>Button</code>'s in-line action and child
+	 *            actions. It is left at the end of the button's element.
+	 * @param keyTable
+	 *            The {@link KeyTable} to look up keys in the actions with.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If one of the actions cannot be compiled.
+	 */
+	Button(char piece, XMLStreamReader reader, KeyTable keyTable) throws XMLStreamException, IllegalArgumentException {
+		this(piece);
+		
+		// Get the Button's in-line action.
+		if (!XmlLevelLoader.getAttribute(reader, "type").isEmpty()) {
+			addAction(Action.compile(reader, keyTable));
+		}
+		
+		// Get the Button's actions, however deeply they are nested.
+		int depth = 0;
+		while (true) {
+			if (!XmlLevelLoader.nextChild(reader)) {
+				if (depth == 0) {
+					break;
+				}
+				depth--;
+			} else if (reader.getLocalName().equals("action")) {
+				addAction(Action.compile(reader, keyTable));
+				XmlLevelLoader.skipElement(reader);
+			} else {
+				depth++;
+			}
+		}
+	}
+		
+	/**
+	 * Adds an {@link Action} to this <code>Button</code>, unless it is
+	 * <code>null</code> (an action of an unknown type).
+	 * 
+	 * @param action
+	 *            The {@link Action} to add.
+	 */
+	void addAction(Action action) {
+		if (action != null) {
+			actions.add(action);
+		}
+	}
+	
+	/**
+	 * Activates this <code>Button</code>s actions.
+	 * 
+	 * @param game
+	 *            The {@link Game} to activate the actions in.
+	 */
+	void activate(Game game) {
+		for (Action action : actions) {
+			action.activate(game);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder buttonAttributes = new StringBuilder(getClass().getName() + "[" + piece + "," + getAttributes() + "]");
+		for (Action action : actions) {
+			buttonAttributes.append("\n  " + action);
+		}
+		return buttonAttributes.toString();
+	}
+	
+}
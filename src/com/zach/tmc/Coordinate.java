@@ -0,0 +1,66 @@
+package com.zach.tmc;
+
+/**
+ * The <code>Coordinate</code> class holds a coordinate from a level that is
+ * either absolute, like "5", or relative to the current coordinate, like "~5".
+ * It is parsed once when the level is loaded so that it can be resolved
+ * without any string parsing.
+ * 
+ * @author Zach K
+ */
+class Coordinate {
+	/** Whether or not {@link #value} is added to the current coordinate rather than replacing it. */
+	final boolean relative;
+	/** The absolute coordinate, or the offset from the current coordinate. */
+	final int value;
+	
+	/**
+	 * Constructs a <code>Coordinate</code>.
+	 * 
+	 * @param relative
+	 *            Whether or not the value is relative to the current coordinate.
+	 * @param value
+	 *            The absolute coordinate, or the offset from the current
+	 *            coordinate.
+	 */
+	Coordinate(boolean relative, int value) {
+		this.relative = relative;
+		this.value = value;
+	}
+	
+	/**
+	 * Parses a <code>Coordinate</code> from a level. An empty string is the same
+	 * as "~0", which keeps the current coordinate.
+	 * 
+	 * @param text
+	 *            The text of the coordinate.
+	 * @return The parsed <code>Coordinate</code>.
+	 * @throws NumberFormatException
+	 *             If the text is not a valid coordinate.
+	 */
+	static Coordinate parse(String text) throws NumberFormatException {
+		if (text.isEmpty()) {
+			return new Coordinate(true, 0);
+		}
+		if (text.startsWith("~")) {
+			return new Coordinate(true, Integer.parseInt(text.substring(1)));
+		}
+		return new Coordinate(false, Integer.parseInt(text));
+	}
+	
+	/**
+	 * Resolves this <code>Coordinate</code> against the current coordinate.
+	 * 
+	 * @param current
+	 *            The current coordinate.
+	 * @return The real coordinate.
+	 */
+	int resolve(int current) {
+		return relative ? current + value : value;
+	}
+	
+	@Override
+	public String toString() {
+		return relative ? "~" + value : String.valueOf(value);
+	}
+}
@@ -25,6 +25,8 @@ import javax.swing.JLabel;
 public class Debugger extends JFrame {
 	/** Reference to the {@link Game} which this <code>Debugger</code> came from. */
 	public Game game;
+	/** Whether or not this <code>Debugger</code> is being displayed. */
+	public volatile boolean debugging = false;
 	
 	/** The main panel where everything in the <code>Debugger</code> GUI is stored. */
 	private JPanel contentPane;
@@ -54,7 +56,7 @@ public class Debugger extends JFrame {
 				addWindowListener(new WindowAdapter() {
 					@Override
 					public void windowClosed(WindowEvent e) {
-						game.debugging = false;
+						debugging = false;
 					}
 				});
 				
@@ -94,7 +96,7 @@ public class Debugger extends JFrame {
 	 * Displays the debugger.
 	 */
 	public void display() {
-		game.debugging = true;
+		debugging = true;
 		EventQueue.invokeLater(new Runnable() {
 			public void run() {
 				setVisible(true);
@@ -112,7 +114,7 @@ public class Debugger extends JFrame {
 					txtpnMain.setText("F" + game.floorNumber + "|" + game.rx + ", " + game.ry + "|" + game.x + ", " + game.y + "|" + game.direction);
 				} else {
 					txtpnMain.setText("F" + game.floorNumber + "|" + game.rx + ", " + game.ry + "|" + game.x + ", " + game.y + "|" + game.direction
-							+ "\n" + game.room.object);
+							+ "\n" + game.room.object.describe(game));
 				}
 			}
 		});
@@ -0,0 +1,111 @@
+package com.zach.tmc;
+
+import java.util.Arrays;
+
+import javax.swing.JTextPane;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+
+/**
+ * The <code>DisplayPane</code> class is the {@link JTextPane} a {@link Game}
+ * is shown in. Rather than replacing all of its text whenever the display
+ * changes, it remembers the frame it is showing and only edits the characters
+ * that are different in the next one.
+ *
+ * @author Zach K
+ */
+public class DisplayPane extends JTextPane {
+	/** The frame of characters this <code>DisplayPane</code> is showing. */
+	private char[][] shown;
+	
+	/**
+	 * Constructs a blank <code>DisplayPane</code> with a size in characters.
+	 *
+	 * @param width
+	 *            The width of the display in characters.
+	 * @param height
+	 *            The height of the display in characters.
+	 */
+	public DisplayPane(int width, int height) {
+		setEditable(false);
+		
+		// Start with a frame full of spaces so the pane packs to the right size.
+		char[][] blank = new char[height][width];
+		for (char[] row : blank) {
+			Arrays.fill(row, ' ');
+		}
+		rewrite(blank);
+	}
+	
+	/**
+	 * Shows a frame of characters, only editing the runs of characters that
+	 * changed since the last frame. This method must be called on the event
+	 * dispatch thread, and the frame must not be changed afterwards.
+	 *
+	 * @param frame
+	 *            The frame of characters to show.
+	 */
+	public void showFrame(char[][] frame) {
+		// If the size of the frame changed, the whole text has to be rewritten.
+		if (frame.length != shown.length) {
+			rewrite(frame);
+			return;
+		}
+		for (int y = 0; y < frame.length; y++) {
+			if (frame[y].length != shown[y].length) {
+				rewrite(frame);
+				return;
+			}
+		}
+		
+		AbstractDocument document = (AbstractDocument) getDocument();
+		try {
+			int offset = 0;
+			for (int y = 0; y < frame.length; y++) {
+				char[] row = frame[y];
+				char[] shownRow = shown[y];
+				
+				int x = 0;
+				while (x < row.length) {
+					if (row[x] == shownRow[x]) {
+						x++;
+						continue;
+					}
+					
+					// Find the run of changed characters and replace it in one edit.
+					int start = x;
+					while (x < row.length && row[x] != shownRow[x]) {
+						shownRow[x] = row[x];
+						x++;
+					}
+					document.replace(offset + start, x - start, new String(row, start, x - start), null);
+				}
+				
+				// Move past the row and its line break.
+				offset += row.length + 1;
+			}
+		} catch (BadLocationException e) {
+			// If the text got out of step with the frame somehow, rewrite all of it.
+			rewrite(frame);
+		}
+	}
+	
+	/**
+	 * Replaces all of the text in this <code>DisplayPane</code> with a frame.
+	 *
+	 * @param frame
+	 *            The frame of characters to show.
+	 */
+	private void rewrite(char[][] frame) {
+		shown = new char[frame.length][];
+		StringBuilder text = new StringBuilder();
+		for (int y = 0; y < frame.length; y++) {
+			shown[y] = frame[y].clone();
+			if (y > 0) {
+				text.append('\n');
+			}
+			text.append(frame[y]);
+		}
+		setText(text.toString());
+	}
+}
@@ -0,0 +1,51 @@
+package com.zach.tmc;
+
+/**
+ * The <code>Door</code> class is a {@link RoomObject} that acts like a
+ * {@link Block}, but can be open or closed based on it's {@link #key}.
+ * 
+ * @author Zach K
+ */
+class Door extends RoomObject {
+	/** The ID of the key in the {@link Game#keyTable} that opens the <code>Door</code>. */
+	final int key;
+	/** The name of the key that opens the <code>Door</code>. */
+	final String keyName;
+	/** Whether or not the <code>Door</code> is inverted (the key closes the door). */
+	final boolean inverted;
+	
+	/**
+	 * Constructs a <code>Door</code> with a piece and key.
+	 * 
+	 * @param piece
+	 *            The piece of the <code>Door</code>
+	 * @param key
+	 *            The ID of the key that opens the <code>Door</code>.
+	 * @param keyName
+	 *            The name of the key that opens the <code>Door</code>.
+	 * @param inverted
+	 *            Whether or not the <code>Door</code> is inverted, meaning the key
+	 *            closes the <code>Door</code> rather than opening it.
+	 */
+	Door(char piece, int key, String keyName, boolean inverted) {
+		super(piece);
+		
+		this.collidable = false;
+		this.notify = false;
+		this.instant = false;
+		
+		this.key = key;
+		this.keyName = keyName;
+		this.inverted = inverted;
+	}
+		
+	@Override
+	public String describe(Game game) {
+		return getClass().getName() + "[" + piece + ",key=\"" + keyName + "\",open=" + !getCollision(game) + "," + getAttributes() + "," + "]";
+	}
+	
+	@Override
+	public String toString() {
+		return getClass().getName() + "[" + piece + ",key=\"" + keyName + "\",inverted=" + inverted + "," + getAttributes() + "," + "]";
+	}
+}
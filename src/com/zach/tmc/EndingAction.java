@@ -0,0 +1,29 @@
+package com.zach.tmc;
+
+/**
+ * The <code>EndingAction</code> class is an {@link Action} that ends the game.
+ *
+ * @author Zach K
+ */
+class EndingAction extends Action {
+	
+	EndingAction(String condition, KeyTable keyTable) throws IllegalArgumentException {
+		super(condition, keyTable);
+	}
+	
+	EndingAction(BooleanEvaluator.Expression condition) {
+		super(condition);
+	}
+	
+	@Override
+	void perform(Game game) {
+		game.gameRunning = false;
+		game.finished = true;
+		game.listener.showMessage(game, null, game.message);
+	}
+	
+	@Override
+	String getAttributes() {
+		return "type=ending";
+	}
+}
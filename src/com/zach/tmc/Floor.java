@@ -0,0 +1,185 @@
+package com.zach.tmc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * The <code>Floor</code> class holds a floor of a level once it has been
+ * loaded: its map, its {@link RoomDefinition}s, and where the player starts on
+ * it. Only the map is read when the floor is loaded. Each room is kept as a
+ * {@link RoomSource} and is only built the first time it is needed, so loading a
+ * floor does not depend on how many rooms it has. Nothing in a
+ * <code>Floor</code> belongs to a single {@link Game}, so it is shared by
+ * every {@link Game} playing the same {@link Level}. Rooms may be built from
+ * more than one thread, and when every room is needed at once they are all
+ * built in parallel by {@link #buildDefinitions()}.
+ *
+ * @author Zach K
+ */
+public class Floor {
+	/** The number of this <code>Floor</code>. */
+	public final int number;
+	/** The grid map of this <code>Floor</code>. */
+	public final char[][] map;
+	/** The {@link RoomDefinition}s on this <code>Floor</code> that have been built, by their reference character in the {@link #map}. */
+	public final Map<Character, RoomDefinition> definitions = new ConcurrentHashMap<Character, RoomDefinition>();
+	
+	/** The sources of the {@link RoomDefinition}s that have not been built yet, by their reference character. */
+	private final Map<Character, RoomSource> roomSources;
+	
+	/** Whether or not this <code>Floor</code> has a starting position for the player. */
+	public final boolean hasPlayer;
+	/** The x coordinate of the player's starting room in the {@link #map}. */
+	public final int playerRx;
+	/** The y coordinate of the player's starting room in the {@link #map}. */
+	public final int playerRy;
+	/** The x coordinate of the player in the starting room. */
+	public final int playerX;
+	/** The y coordinate of the player in the starting room. */
+	public final int playerY;
+	
+	/**
+	 * Constructs a <code>Floor</code> without a starting position for the
+	 * player.
+	 *
+	 * @param number
+	 *            The number of the <code>Floor</code>.
+	 * @param map
+	 *            The grid map of the <code>Floor</code>.
+	 * @param roomSources
+	 *            The sources of the rooms on the <code>Floor</code>, by
+	 *            their reference character.
+	 */
+	public Floor(int number, char[][] map, Map<Character, RoomSource> roomSources) {
+		this.number = number;
+		this.map = map;
+		this.roomSources = new ConcurrentHashMap<Character, RoomSource>(roomSources);
+		
+		this.hasPlayer = false;
+		this.playerRx = 0;
+		this.playerRy = 0;
+		this.playerX = 0;
+		this.playerY = 0;
+	}
+	
+	/**
+	 * Constructs a <code>Floor</code> with a starting position for the player.
+	 *
+	 * @param number
+	 *            The number of the <code>Floor</code>.
+	 * @param map
+	 *            The grid map of the <code>Floor</code>.
+	 * @param roomSources
+	 *            The sources of the rooms on the <code>Floor</code>, by
+	 *            their reference character.
+	 * @param playerRx
+	 *            The x coordinate of the player's starting room in the map.
+	 * @param playerRy
+	 *            The y coordinate of the player's starting room in the map.
+	 * @param playerX
+	 *            The x coordinate of the player in the starting room.
+	 * @param playerY
+	 *            The y coordinate of the player in the starting room.
+	 */
+	public Floor(int number, char[][] map, Map<Character, RoomSource> roomSources, int playerRx, int playerRy, int playerX, int playerY) {
+		this.number = number;
+		this.map = map;
+		this.roomSources = new ConcurrentHashMap<Character, RoomSource>(roomSources);
+		
+		this.hasPlayer = true;
+		this.playerRx = playerRx;
+		this.playerRy = playerRy;
+		this.playerX = playerX;
+		this.playerY = playerY;
+	}
+	
+	/**
+	 * Gets a {@link RoomDefinition} on this <code>Floor</code>, building it from
+	 * its source if this is the first time it is needed.
+	 * 
+	 * @param reference
+	 *            The reference character of the {@link RoomDefinition}.
+	 * @return The {@link RoomDefinition}, or <code>null</code> if there is no
+	 *         room with that reference character.
+	 * @throws IllegalArgumentException
+	 *             If the {@link RoomDefinition} cannot be created with its data,
+	 *             for a wide variety of reasons.
+	 */
+	public RoomDefinition getDefinition(char reference) throws IllegalArgumentException {
+		RoomDefinition definition = definitions.get(reference);
+		if (definition == null) {
+			RoomSource source = roomSources.get(reference);
+			if (source == null) {
+				// Either there is no such room, or another thread just finished building it.
+				return definitions.get(reference);
+			}
+			
+			// Build the room without holding any lock, so other rooms can be built at the same time.
+			definition = source.build(reference);
+			
+			// If another thread built the same room first, its copy is kept. Either way, the source is no longer needed.
+			RoomDefinition built = definitions.putIfAbsent(reference, definition);
+			roomSources.remove(reference);
+			if (built != null) {
+				definition = built;
+			}
+		}
+		return definition;
+	}
+	
+	/**
+	 * Builds every {@link RoomDefinition} on this <code>Floor</code> that has not
+	 * been built yet. Each room is independent of the others, so they are built
+	 * in parallel on the common {@link ForkJoinPool}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If a {@link RoomDefinition} cannot be created with its data, for
+	 *             a wide variety of reasons.
+	 */
+	public void buildDefinitions() throws IllegalArgumentException {
+		List<Callable<RoomDefinition>> tasks = new ArrayList<Callable<RoomDefinition>>(roomSources.size());
+		for (final char reference : roomSources.keySet()) {
+			tasks.add(new Callable<RoomDefinition>() {
+				@Override
+				public RoomDefinition call() throws IllegalArgumentException {
+					return getDefinition(reference);
+				}
+			});
+		}
+		
+		// A single room is not worth handing to another thread.
+		if (tasks.size() < 2) {
+			for (Callable<RoomDefinition> task : tasks) {
+				try {
+					task.call();
+				} catch (IllegalArgumentException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new IllegalArgumentException(e);
+				}
+			}
+			return;
+		}
+		
+		// Wait for every room, passing on the first error found.
+		for (Future<RoomDefinition> result : ForkJoinPool.commonPool().invokeAll(tasks)) {
+			try {
+				result.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalArgumentException("Interrupted while building the rooms on floor #" + number, e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IllegalArgumentException) {
+					throw (IllegalArgumentException) e.getCause();
+				}
+				throw new IllegalArgumentException(e.getCause());
+			}
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package com.zach.tmc;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The <code>FloorCache</code> class holds the {@link Floor}s a {@link Level}
+ * has loaded, by their number, so that going back to a floor does not read it
+ * from the level again. The floors keep the {@link RoomDefinition}s that have
+ * been built on them. It is safe to use from more than one thread. Floors a
+ * {@link Game} is on are marked with {@link #use(int)} and are always kept.
+ * Only a limited amount of the other floors are kept; once there are too many,
+ * the one that was used the longest time ago is dropped. This way, reading
+ * ahead for one {@link Game} never drops the floor another is playing on.
+ *
+ * @author Zach K
+ */
+public class FloorCache {
+	/** The most floors no {@link Game} is on this <code>FloorCache</code> keeps at once. */
+	private int capacity;
+	
+	/** The cached floors by number, from the least to the most recently used. */
+	private final Map<Integer, Floor> floors = new LinkedHashMap<Integer, Floor>(16, 0.75f, true);
+	/** The amount of {@link Game}s on each floor, by number. Floors no {@link Game} is on are left out. */
+	private final Map<Integer, Integer> users = new HashMap<Integer, Integer>();
+	
+	/**
+	 * Constructs an empty <code>FloorCache</code>.
+	 *
+	 * @param capacity
+	 *            The most floors no {@link Game} is on to keep at once.
+	 * @throws IllegalArgumentException
+	 *             If the capacity is less than 1.
+	 */
+	public FloorCache(int capacity) throws IllegalArgumentException {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The floor cache must hold at least one floor");
+		}
+		this.capacity = capacity;
+	}
+	
+	/**
+	 * Gets the most floors no {@link Game} is on this <code>FloorCache</code>
+	 * keeps at once.
+	 *
+	 * @return The capacity of this <code>FloorCache</code>.
+	 */
+	public synchronized int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Makes sure this <code>FloorCache</code> keeps at least a certain amount of
+	 * floors no {@link Game} is on. It is never made smaller.
+	 *
+	 * @param capacity
+	 *            The least amount of floors to keep.
+	 */
+	public synchronized void ensureCapacity(int capacity) {
+		this.capacity = Math.max(this.capacity, capacity);
+	}
+	
+	/**
+	 * Gets a cached floor, marking it as the most recently used.
+	 *
+	 * @param number
+	 *            The number of the floor.
+	 * @return The floor, or <code>null</code> if it is not cached.
+	 */
+	public synchronized Floor get(int number) {
+		return floors.get(number);
+	}
+	
+	/**
+	 * Puts a floor into this <code>FloorCache</code> unless a floor with the same
+	 * number is already cached, in which case that floor is kept and used
+	 * instead. This keeps a floor someone is already playing on from being
+	 * replaced by a fresh copy of it.
+	 *
+	 * @param floor
+	 *            The floor to cache.
+	 * @return The floor that is cached under the floor's number.
+	 */
+	public synchronized Floor putIfAbsent(Floor floor) {
+		Floor cached = floors.get(floor.number);
+		if (cached != null) {
+			return cached;
+		}
+		floors.put(floor.number, floor);
+		trim();
+		return floor;
+	}
+	
+	/**
+	 * Checks if a floor is cached, without marking it as used.
+	 *
+	 * @param number
+	 *            The number of the floor.
+	 * @return True if the floor is cached, false otherwise.
+	 */
+	public synchronized boolean contains(int number) {
+		return floors.containsKey(number);
+	}
+	
+	/**
+	 * Marks a floor as one a {@link Game} is on, so it is kept until
+	 * {@link #release(int)} is called for it. The floor does not have to be
+	 * cached yet; once it is, it is kept.
+	 *
+	 * @param number
+	 *            The number of the floor.
+	 */
+	public synchronized void use(int number) {
+		Integer count = users.get(number);
+		users.put(number, count == null ? 1 : count + 1);
+	}
+	
+	/**
+	 * Marks a floor as one a {@link Game} has left. Once no {@link Game} is on
+	 * it, it can be dropped like any other floor.
+	 *
+	 * @param number
+	 *            The number of the floor.
+	 */
+	public synchronized void release(int number) {
+		Integer count = users.get(number);
+		if (count == null) {
+			return;
+		}
+		if (count > 1) {
+			users.put(number, count - 1);
+		} else {
+			users.remove(number);
+			trim();
+		}
+	}
+	
+	/**
+	 * Drops the floors no {@link Game} is on that were used the longest time
+	 * ago, until there are no more of them than the {@link #capacity}.
+	 */
+	private void trim() {
+		// Count the floors no Game is on.
+		int unused = 0;
+		for (Integer number : floors.keySet()) {
+			if (!users.containsKey(number)) {
+				unused++;
+			}
+		}
+		
+		// The floors are gone through from the least to the most recently used.
+		Iterator<Integer> numbers = floors.keySet().iterator();
+		while (unused > capacity && numbers.hasNext()) {
+			if (!users.containsKey(numbers.next())) {
+				numbers.remove();
+				unused--;
+			}
+		}
+	}
+}
@@ -1,65 +1,41 @@
 package com.zach.tmc;
 
-import java.awt.EventQueue;
-import java.awt.Font;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
-import java.awt.event.WindowAdapter;
-import java.awt.event.WindowEvent;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
-import javax.swing.JFileChooser;
-import javax.swing.JFrame;
-import javax.swing.JOptionPane;
-import javax.swing.JTextPane;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import javax.xml.stream.XMLStreamException;
 
 /**
  * The <code>Game</code> class is responsible for the bulk work of The Maze
- * Caves. It is responsible for parsing the level, creating a display and a
- * player, handling the controls, etc.
+ * Caves. It is responsible for reading the level, moving the player, handling
+ * the inputs, etc. It does not show anything by itself; everything the player
+ * should see or be asked goes to its {@link GameListener}, which is a
+ * {@link GameFrame} when the <code>Game</code> is played in a window. A
+ * <code>Game</code> can either be run on a thread of its own, where it waits
+ * for the inputs given to {@link #queueInput(Input)}, or be driven directly
+ * with {@link #start()}, {@link #step(Input)}, and {@link #end()}.
  * 
  * @author Zach K
  */
-public class Game extends JFrame implements Runnable {
-	/** The reference to the launcher this <code>Game</code> came from. */
-	public Launcher launcher;
-	
-	/** The main piece of the display that houses the main text and {@link KeyListener}. */
-	private JTextPane pane;
+public class Game implements Runnable {
+	/** The {@link GameListener} everything that happens in this <code>Game</code> is given to. */
+	public final GameListener listener;
 	
-	/** The user's control for moving left. */
-	public int leftKeyCode;
-	/** The user's control for moving up. */
-	public int upKeyCode;
-	/** The user's control for moving right. */
-	public int rightKeyCode;
-	/** The user's control for moving down. */
-	public int downKeyCode;
-	/** The user's control for interacting with objects. */
-	public int actionKeyCode;
 	/** The user's custom piece in the <code>Game</code>. */
-	public char playerPiece;
+	public char playerPiece = 'P';
 	
-	/** The {@link KeyEvent} virtual key code for the last key pressed. */
-	public volatile int keyCode = 0;
+	/** The inputs the player has made that the main loop has not handled yet. */
+	public final BlockingQueue<Input> inputs = new ArrayBlockingQueue<Input>(INPUT_CAPACITY);
+	/** The input the main loop is handling, or <code>null</code> once it has been used up. */
+	public Input input;
 	
-	/** The data of the save file, if it exists. */
-	public String data[];
+	/** The save file this <code>Game</code> carries on from, until its floor has been loaded. */
+	public SaveFile save;
 	/** The path to the level this <code>Game</code> is using. */
 	public String levelPath;
 	/** The title of the level. */
@@ -71,22 +47,44 @@ public class Game extends JFrame implements Runnable {
 	
 	/** The grid map of the current floor. */
 	public char[][] map;
-	/** This <code>Map</code> holds all of the <code>Room</code>s in the floor. Each {@link Room} has its own reference character in this <code>Map</code>.*/
+	/** This <code>Map</code> holds all of the <code>Room</code>s in the floor that have been entered since the player came onto it. Each {@link Room} has its own reference character in this <code>Map</code>.*/
 	public Map<Character, Room> floor = new HashMap<Character, Room>();
+	/** The text ({@link Room#room}) of every room that has been entered on the floors visited most recently, by floor number and then by reference character, so each floor is shown the way the player left it. Only the last {@link #floorCacheSize} floors are kept. */
+	public final Map<Integer, Map<Character, char[][]>> visitedFloors = new LinkedHashMap<Integer, Map<Character, char[][]>>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Map<Character, char[][]>> eldest) {
+			return size() > Math.max(1, floorCacheSize);
+		}
+	};
+	/** The text of every room that has been entered on the current floor, which is kept in the {@link #visitedFloors}. */
+	private Map<Character, char[][]> roomTexts;
+	/** The current floor, which holds the {@link RoomDefinition}s the {@link Room}s in {@link #floor} are played from. It is shared with other <code>Game</code>s. */
+	public Floor currentFloor;
 	/** The active {@link Room}. */
 	public Room room;
+	/** The level this <code>Game</code> is playing, shared with every other <code>Game</code> playing it. */
+	public Level level;
+	/** The most floors kept in the {@link #visitedFloors}, and the most floors no <code>Game</code> is on that the {@link #level} keeps loaded. It must be set before the <code>Game</code> starts. */
+	public int floorCacheSize = Level.FLOOR_CACHE_SIZE;
+	/** Builds the rooms and floors the player may go to next in the background. */
+	public Prefetcher prefetcher = new Prefetcher(this);
+	/** Autosaves this <code>Game</code> after every move, or <code>null</code> if it is not autosaved. */
+	public Journal journal;
 	
-	/** Holds all of the active and inactive keys for conditional testing and using doors. */
-	public ArrayList<String> keys = new ArrayList<String>();
-	
-	/** The {@link Debugger} that belongs to this <code>Game</code>. */
-	public Debugger debugger;
-	/** Variable to determine the {@link #debugger}'s status. */
-	public boolean debugging = false;
+	/** Gives every key in the level an ID, which is used to look up the key in {@link #keys}. It belongs to the {@link #level}. */
+	public KeyTable keyTable = new KeyTable();
+	/** Holds all of the active keys by their ID for conditional testing and using doors. */
+	public BitSet keys = new BitSet();
 	
 	/** Variable to determine the <code>Game</code>'s status. */
-	public boolean gameRunning = true;
-	/** The current tick the game is on, reset every second. */
+	public volatile boolean gameRunning = true;
+	/** Whether or not {@link #end()} has been called. */
+	private boolean ended = false;
+	/** Whether or not the player has reached the ending of the level. */
+	public boolean finished = false;
+	/** The time the player last made an input, in milliseconds, or 0 if they have not made one yet. */
+	public volatile long lastInputTime = 0;
+	/** The current tick the game is on, increased for every input handled and reset every second. */
 	public long tick = 0;
 	
 	/** The number floor the player is on. */
@@ -124,10 +122,25 @@ public class Game extends JFrame implements Runnable {
 	/** The last direction the player moved in. */
 	public Direction direction;
 	
-	/** The <code>Game</code>'s level in {@link Document} form. */
-	Document levelDocument;
-	/** Reference to {@link Launcher#xPath} */
-	XPath xPath = Launcher.xPath;
+	/**
+	 * Enumeration for the inputs the player can give the <code>Game</code>.
+	 */
+	public enum Input {
+		/** Used when the player moves left. */
+		LEFT,
+		/** Used when the player moves up. */
+		UP,
+		/** Used when the player moves right. */
+		RIGHT,
+		/** Used when the player moves down. */
+		DOWN,
+		/** Used when the player interacts with an object. */
+		ACTION,
+		/** Used when the player asks to save. The {@link SaveFile} is taken in between moves and given to the {@link #listener}. */
+		SAVE,
+		/** Used to wake up the main loop when the <code>Game</code> is stopped. */
+		STOP
+	}
 	
 	/** The version number of the level file this Game uses. */
 	public static final int VERSION = 2;
@@ -135,297 +148,252 @@ public class Game extends JFrame implements Runnable {
 	public static final int ROOM_WIDTH = 16;
 	/** The height of the display in characters. */
 	public static final int ROOM_HEIGHT = 8;
+	/** The amount of inputs that can be queued before new ones are dropped. */
+	public static final int INPUT_CAPACITY = 16;
 	
 	/**
-	 * Constructs a new <code>Game</code> with a reference to the {@link Launcher} it
-	 * started from and the level it will use.
+	 * Constructs a new <code>Game</code> with the level it will use.
 	 * 
-	 * @param launcher
-	 *            The {@link Launcher} this <code>Game</code> came from.
 	 * @param levelPath
 	 *            The path to the level this <code>Game</code> will use.
+	 * @param listener
+	 *            The {@link GameListener} to give everything that happens to.
 	 */
-	public Game(Launcher launcher, String levelPath) {
-		this.launcher = launcher;
+	public Game(String levelPath, GameListener listener) {
+		this.listener = listener;
 		this.levelPath = levelPath;
 	}
 	
 	/**
-	 * Constructs a new <code>Game</code> with a reference to the {@link Launcher}
-	 * it started from and the save file data it will use.
+	 * Constructs a new <code>Game</code> that carries on from a save file.
 	 * 
-	 * @param launcher
-	 *            The {@link Launcher} this <code>Game</code> came from.
-	 * @param data
-	 *            The save file data this <code>Game</code> will use.
+	 * @param save
+	 *            The save file this <code>Game</code> will carry on from.
+	 * @param listener
+	 *            The {@link GameListener} to give everything that happens to.
 	 */
-	public Game(Launcher launcher, String[] data) throws IllegalArgumentException, NumberFormatException {
-		this.launcher = launcher;
-		
-		if (data.length < 6) {
-			throw new IllegalArgumentException("Corrupted save file");
-		}
-		this.data = data;
+	public Game(SaveFile save, GameListener listener) {
+		this.listener = listener;
+		this.save = save;
 		
-		this.levelPath = data[0];
-		floorNumber = Integer.parseInt(data[1]);
+		this.levelPath = save.levelPath;
+		floorNumber = save.floorNumber;
 	}
 
 	/**
 	 * Since <code>Game</code> implements a {@link Runnable}, this run method is
-	 * used to launch the <code>Game</code> on a separate thread.
+	 * used to launch the <code>Game</code> on a separate thread. It plays the
+	 * <code>Game</code> until it ends, waiting for each input.
 	 */
 	@Override
 	public void run() {
-		// Attempt to parse the level into a document for use.
 		try {
-			DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-			if (levelPath.startsWith("/")) {
-				System.out.println(levelPath);
-				levelDocument = documentBuilder.parse(Game.class.getResourceAsStream(levelPath));
-			} else {
-				levelDocument = documentBuilder.parse(levelPath);
+			if (!start()) {
+				return;
+			}
+			
+			// This is the main loop of the Game.
+			while (gameRunning) {
+				// Wait for the next input and act accordingly.
+				Input next = inputs.take();
+				if (next == Input.STOP) {
+					break;
+				}
+				step(next);
 			}
+		} catch (InterruptedException e) {
+			// If the Game's thread is interrupted while waiting for input, the Game closes quietly.
+		} catch (Exception e) {
+			// Any error closes the Game.
+			listener.showMessage(this, null, "An unexpected internal error occured while playing this game.\nError: " + e.toString() + "\nThe program will now exit.");
+		} finally {
+			end();
+		}
+	}
 			
-			// If the level is successfully parsed, then the data about that level is taken and saved.
-			Element levelRoot = (Element) xPath.evaluate("/level", levelDocument, XPathConstants.NODE);
+	/**
+	 * Reads the level and puts the player on the first floor, so that the
+	 * <code>Game</code> is ready for its first input. If anything goes wrong, the
+	 * player is told why through the {@link #listener}.
+	 * 
+	 * @return True if the <code>Game</code> is ready to be played, false if it
+	 *         could not be started.
+	 */
+	public boolean start() {
+		// Attempt to read the start of the level for use, unless another Game is already playing it.
+		try {
+			level = Level.acquire(levelPath, floorCacheSize);
+			LevelLoader levelLoader = level.loader;
+			keyTable = levelLoader.keyTable;
 			
-			title = levelRoot.getAttribute("title");
-			description = decode(levelRoot.getAttribute("description"));
-			message = levelRoot.getAttribute("message");
+			// If the level is successfully read, then the data about that level is taken and saved.
+			title = levelLoader.title;
+			description = decode(levelLoader.description);
+			message = levelLoader.message;
 			
 			// If the version of the level is not the same as the VERSION constant, ask if the user wants to cancel loading the level. 
-			String versionS = levelRoot.getAttribute("version");
-			int input = JOptionPane.YES_OPTION;
+			String versionS = levelLoader.version;
+			boolean accepted = true;
 			
 			if (versionS.isEmpty()) {
-				input = JOptionPane.showConfirmDialog(null, "This level is from an older version.\nAre you sure you want to load it? (Loading older levels could cause problems)", "", JOptionPane.WARNING_MESSAGE);
+				accepted = listener.confirm(this, "This level is from an older version.\nAre you sure you want to load it? (Loading older levels could cause problems)");
 			} else {
 				int version = Integer.parseInt(versionS);
 				if (version < VERSION) {
-					input = JOptionPane.showConfirmDialog(null, "This level is from an older version.\nAre you sure you want to load it? (Loading older levels could cause problems)", "", JOptionPane.WARNING_MESSAGE);
+					accepted = listener.confirm(this, "This level is from an older version.\nAre you sure you want to load it? (Loading older levels could cause problems)");
 				} else if (version > VERSION) {
-					input = JOptionPane.showConfirmDialog(null, "This level is from an newer version.\nAre you sure you want to load it? (Loading newer levels could cause problems)", "", JOptionPane.WARNING_MESSAGE);
+					accepted = listener.confirm(this, "This level is from an newer version.\nAre you sure you want to load it? (Loading newer levels could cause problems)");
 				}
 			}
 			
-			if (input != JOptionPane.YES_OPTION) {
+			if (!accepted) {
 				// If the user decides they do not want to load the level, close the Game. Otherwise, continue.
-				return;
+				return false;
 			}
 			
 			// If the level has a description, display a message with that description.
-			if (!description.isEmpty() && data == null) {
-				JOptionPane.showMessageDialog(null, description, "Info - " + title, JOptionPane.PLAIN_MESSAGE);
+			if (!description.isEmpty() && save == null) {
+				listener.showMessage(this, "Info - " + title, description);
 			}
 		} catch (Exception e) {
 			// If there are any errors, the Game closes.
 			e.printStackTrace();
-			JOptionPane.showMessageDialog(null, "There was an error reading that level.\nError: " + e.toString());
-			return;
+			listener.showMessage(this, null, "There was an error reading that level.\nError: " + e.toString());
+			return false;
 		}
 		
-		// Attempt to collect the user settings and create the display of the Game.
+		// Let the listener get ready to show the Game. If it cannot, the Game closes quietly.
 		try {
-			// Set up the debugger.
-			debugger = new Debugger(this);
-			
-			// Collect user settings.
-			leftKeyCode = Integer.parseInt(xPath.evaluate("/settings/key_left", Launcher.settingsFile));
-			upKeyCode = Integer.parseInt(xPath.evaluate("/settings/key_up", Launcher.settingsFile));
-			rightKeyCode = Integer.parseInt(xPath.evaluate("/settings/key_right", Launcher.settingsFile));
-			downKeyCode = Integer.parseInt(xPath.evaluate("/settings/key_down", Launcher.settingsFile));
-			actionKeyCode = Integer.parseInt(xPath.evaluate("/settings/key_action", Launcher.settingsFile));
-			playerPiece = xPath.evaluate("/settings/player", Launcher.settingsFile).charAt(0);
-			if (playerPiece == '\n') {
-				playerPiece = ' ';
-			}
-			int displaySize = Integer.parseInt(xPath.evaluate("/settings/font_size", Launcher.settingsFile));
-			
-			// Create the display of the Game.
-			EventQueue.invokeLater(new Runnable() {
-				public void run() {
-					// Set frame attributes.
-					setTitle("TMC - " + title);
-					setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-					
-					// Stop the Game when the display is closed.
-					addWindowListener(new WindowAdapter() {
-						@Override
-						public void windowClosed(WindowEvent e) {
-							gameRunning = false;
-						}
-					});
-					
-					// Create the text pane inside the display.
-					pane = new JTextPane();
-					pane.setEditable(false);
-					pane.addKeyListener(new KeyListener() {
-
-						@Override
-						public void keyTyped(KeyEvent e) {
-						}
-
-						@Override
-						public void keyPressed(KeyEvent e) {
-							// When a key is pressed, the key is saved.
-							keyCode = e.getKeyCode();
-							if (keyCode == KeyEvent.VK_F1) {
-								JOptionPane.showMessageDialog(null, description, "Info - " + title, JOptionPane.PLAIN_MESSAGE);
-							}
-							if (e.isControlDown()) {
-								if (keyCode == KeyEvent.VK_D && !debugging) {
-									// If "Control + D" is pressed, then the debugger is displayed.
-									debugger.display();
-								} else if (keyCode == KeyEvent.VK_S) {
-									// If "Control + S" is pressed, then the game data is saved into a file.
-									// This part of the code collects the data into a string.
-									StringBuilder data = new StringBuilder();
-									data.append(levelPath + "\n" + floorNumber + "\n" + rx + "\n" + ry + "\n" + x + "\n" + y);
-									for (String key : keys) {
-										data.append("\n" + key);
-									}
-									
-									char[] dataArray = data.toString().toCharArray();
-									byte key = (byte) (tick % 128);
-									
-									for (int i = 0; i < dataArray.length; i++) {
-										dataArray[i] += key;
-										dataArray[i] *= 10;
-									}
-									
-									try {
-										JFileChooser fileChooser = new JFileChooser();
-										fileChooser.setFileFilter(new SaveFileFilter());
-										fileChooser.setAcceptAllFileFilterUsed(false);
-										int returnValue = fileChooser.showSaveDialog(null);
-										if (returnValue == JFileChooser.APPROVE_OPTION) {
-											// Get the file path. If it does not end with .save, the path is recreated with that suffix.
-											String filePath = fileChooser.getSelectedFile().getPath();
-											if (!filePath.endsWith(".save")) {
-												filePath += ".save";
-											}
-											
-											//
-											OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(filePath), StandardCharsets.UTF_8);
-											writer.write(key);
-											writer.write(String.valueOf(dataArray));
-											writer.close();
-											
-											JOptionPane.showMessageDialog(null, "Sucessfully saved data to \"" + filePath + "\"");
-										} else {
-											JOptionPane.showMessageDialog(null, "Could not save data.");
-										}
-									} catch (Exception e1) {
-										
-									}
-								}
-							}
-						}
-
-						@Override
-						public void keyReleased(KeyEvent e) {
-						}
-						
-					});
-					pane.setText(	"                "
-								+ "\n                "
-								+ "\n                "
-								+ "\n                "
-								+ "\n                "
-								+ "\n                "
-								+ "\n                "
-								+ "\n                ");
-					pane.setFont(new Font("Consolas", Font.PLAIN, displaySize));
-					setResizable(false);
-					add(pane);
-					// Pack the frame so it's screen size appears just right.
-					pack();
-					
-					// Reset the current tick the Game is on back to 0 every second and update the debugger.
-					Timer tickTimer = new Timer();
-					tickTimer.schedule(new TimerTask() {
-						@Override
-						public void run() {
-							if (debugging) {
-								debugger.debugTPS(tick);
-								tick = 0;
-							}
-						}
-					}, 0, 1000);
-					
-					// Show the display.
-					setVisible(true);
-				}
-			});
+			listener.gameStarted(this);
 		} catch (Exception e) {
-			// If there are any errors, than the settings file is reloaded, the display is disposed of, and the Game closes.
-			launcher.loadSettings();
-			dispose();
-			return;
+			return false;
 		}
 		
 		// Load the "first" floor of the Game.
 		try {
 			loadFloor();
 		} catch (Exception e) {
-			// If there are any errors, the display is disposed of and the Game closes.
-			JOptionPane.showMessageDialog(null, "Floor #" + floorNumber + " could not be loaded.\nError: " + e.toString());
-			dispose();
+			// If there are any errors, the Game closes.
+			listener.showMessage(this, null, "Floor #" + floorNumber + " could not be loaded.\nError: " + e.toString());
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Handles a single input, moving the player and activating anything the
+	 * player interacts with. {@link Input#SAVE} gives a {@link SaveFile} of the
+	 * <code>Game</code> to the {@link #listener} instead.
+	 * 
+	 * @param input
+	 *            The input to handle.
+	 */
+	public void step(Input input) {
+		// Saving does not move the player, it only takes a copy of where they are.
+		if (input == Input.SAVE) {
+			listener.gameSaved(this, SaveFile.capture(this));
 			return;
 		}
 		
-		// This is the main loop of the Game.
-		try {
-			while (gameRunning) {
-				// Check for keyboard input and act accordingly.
-				if (keyCode != 0) {
-					if (keyCode == leftKeyCode) {
-						newX--;
-						direction = Direction.LEFT;
-					} else if (keyCode == upKeyCode) {
-						newY--;
-						direction = Direction.UP;
-					} else if (keyCode == rightKeyCode) {
-						newX++;
-						direction = Direction.RIGHT;
-					} else if (keyCode == downKeyCode) {
-						newY++;
-						direction = Direction.DOWN;
-					} 
+		this.input = input;
+		if (input == Input.LEFT) {
+			newX--;
+			direction = Direction.LEFT;
+		} else if (input == Input.UP) {
+			newY--;
+			direction = Direction.UP;
+		} else if (input == Input.RIGHT) {
+			newX++;
+			direction = Direction.RIGHT;
+		} else if (input == Input.DOWN) {
+			newY++;
+			direction = Direction.DOWN;
+		}
 					
-					// Check if the player is moving into a new room. If so, get the new room and new coordinates.
-					loadRoom(false);
+		// Check if the player is moving into a new room. If so, get the new room and new coordinates.
+		loadRoom(false);
 					
-					// Tell the room to load the player's position and check for interaction with objects.
-					room.act(false, true);
+		// Tell the room to load the player's position and check for interaction with objects.
+		room.act(false, true);
 					
-					// Reset the last pressed key.
-					keyCode = 0;
-				}
+		// Reset the handled input.
+		this.input = null;
+		
+		// Record what changed in the autosave.
+		if (journal != null) {
+			journal.record(this);
+		}
 				
-				// Increase the current tick.
-				tick++;
+		// Increase the current tick.
+		tick++;
+	}
+	
+	/**
+	 * Ends the <code>Game</code>: the prefetcher and autosave are stopped (the
+	 * autosave is deleted if the level was beaten), the level is handed back so
+	 * it can be dropped once nothing is playing it, and the {@link #listener} is
+	 * told. Calling it again does nothing.
+	 */
+	public void end() {
+		if (ended) {
+			return;
+		}
+		ended = true;
+		gameRunning = false;
+		
+		prefetcher.shutdown();
+		if (journal != null) {
+			// A Game that has been beaten has nothing left to carry on, so its autosave is no longer needed.
+			if (finished) {
+				journal.discard();
+			} else {
+				journal.close();
 			}
-		} catch (Exception e) {
-			// Any error closes the Game.
-			JOptionPane.showMessageDialog(null, "An unexpected internal error occured while playing this game.\nError: " + e.toString() + "\nThe program will now exit.");
 		}
-		// If the main loop ends, then the display and the debugger are disposed of.
-		dispose();
-		debugger.dispose();
+		if (level != null) {
+			if (currentFloor != null) {
+				level.releaseFloor(currentFloor.number);
+			}
+			level.release();
+		}
+		listener.gameEnded(this);
+	}
+	
+	/**
+	 * Queues an input for the main loop. Inputs made while the queue is full are
+	 * ignored.
+	 * 
+	 * @param input
+	 *            The input to queue.
+	 */
+	public void queueInput(Input input) {
+		lastInputTime = System.currentTimeMillis();
+		inputs.offer(input);
+	}
+	
+	/**
+	 * Stops the <code>Game</code>, waking up the main loop if it is waiting for
+	 * input.
+	 */
+	public void stop() {
+		gameRunning = false;
+		inputs.clear();
+		inputs.offer(Input.STOP);
 	}
 	
 	/**
-	 * This method loads the floor specified by {@link #floorNumber}.
+	 * This method loads the floor specified by {@link #floorNumber}. If the floor
+	 * has already been loaded by the {@link #level}, by this <code>Game</code> or
+	 * any other, it is used instead of being read from the level again.
 	 * 
-	 * @throws XPathExpressionException
-	 *             If there is an issue parsing the level, such as when something is
-	 *             missing.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If there is an issue parsing the level, such as when it is not
+	 *             well formed.
 	 * @throws IllegalArgumentException
-	 *             If a room cannot be created with its data given in a level.
-	 * @throws NullPointerException
-	 *             If the floor doesn't exist.
+	 *             If the floor doesn't exist or a room cannot be created with its
+	 *             data given in a level.
 	 * @throws IndexOutOfBoundsException
 	 *             If the player's x and/or y coordinates are outside the bounds of
 	 *             the display.
@@ -434,51 +402,50 @@ public class Game extends JFrame implements Runnable {
 	 *             to (if the player's x and/or y coordinates are outside the bounds
 	 *             of the array).
 	 */
-	public void loadFloor() throws XPathExpressionException, IllegalArgumentException, NullPointerException,
+	public void loadFloor() throws IOException, XMLStreamException, IllegalArgumentException,
 			IndexOutOfBoundsException, ArrayIndexOutOfBoundsException {
-		// Begin by clearing the currently loaded floor.
-		floor.clear();
+		// Get the floor from the level, which reads it if it has not been loaded yet and keeps it loaded while the player is on it.
+		Floor loadedFloor = level.useFloor(floorNumber);
 		
-		// Store the main XPath for that floor for further usage. 
-		String floorPath = "/level/floor[@id='" + floorNumber + "']";
-		
-		// Collect the main character map on that floor as an array of strings.
-		String[] mapText = xPath.evaluate(floorPath + "/map", levelDocument).trim().split("\n");
-		// Evaluate that array of strings and turn it into a 2 dimensional character array.
-		map = new char[mapText.length][];
-		for (int i = 0; i < map.length; i++) {
-			// This for loop runs for every row in the array of strings.
-			map[i] = mapText[i].trim().toCharArray();
-			for (char c : map[i]) {
-				/*
-				 * For every character in that row, a room is created unless a room for that
-				 * character already exists or that character is a bridge.
-				 */
-				if (Character.isLetter(c) && floor.get(c) == null) {
-					Element roomElement = (Element) xPath.evaluate(floorPath + "/" + c, levelDocument, XPathConstants.NODE);
-					
-					Room room = new Room(Game.this, roomElement, c);
-					floor.put(c, room);
-				}
+		// When the Game is just starting, the player is waiting anyway, so every room on the floor is built up front.
+		if (room == null) {
+			try {
+				loadedFloor.buildDefinitions();
+			} catch (IllegalArgumentException e) {
+				level.releaseFloor(floorNumber);
+				throw e;
 			}
 		}
 		
-		// Put the map into the debugger.
-		debugger.debugMap();
+		// The floor the player left can be dropped once no other Game is on it.
+		if (currentFloor != null) {
+			level.releaseFloor(currentFloor.number);
+		}
+		currentFloor = loadedFloor;
+		map = loadedFloor.map;
+		
+		// Pick up the rooms of the floor where the player left them, if the player has been here recently.
+		floor = new HashMap<Character, Room>();
+		roomTexts = visitedFloors.get(floorNumber);
+		if (roomTexts == null) {
+			roomTexts = new HashMap<Character, char[][]>();
+			visitedFloors.put(floorNumber, roomTexts);
+		}
 		
 		// Get the player's starting coordinates.
 		direction = Direction.CENTER;
-		if (data != null) {
-			rx = Integer.parseInt(data[2]);
-			ry = Integer.parseInt(data[3]);
-			x = Integer.parseInt(data[4]);
-			y = Integer.parseInt(data[5]);
+		if (save != null) {
+			rx = save.rx;
+			ry = save.ry;
+			x = save.x;
+			y = save.y;
+		} else if (loadedFloor.hasPlayer) {
+			rx = loadedFloor.playerRx;
+			ry = loadedFloor.playerRy;
+			x = loadedFloor.playerX;
+			y = loadedFloor.playerY;
 		} else {
-			Element player = (Element) xPath.evaluate(floorPath + "/player", levelDocument, XPathConstants.NODE);
-			rx = Integer.parseInt(player.getAttribute("rx"));
-			ry = Integer.parseInt(player.getAttribute("ry"));
-			x = Integer.parseInt(player.getAttribute("x"));
-			y = Integer.parseInt(player.getAttribute("y"));
+			throw new IllegalArgumentException("There is no player on floor #" + floorNumber);
 		}
 		
 		if (x < 0 || x >= ROOM_WIDTH) {
@@ -488,15 +455,15 @@ public class Game extends JFrame implements Runnable {
 			throw new IndexOutOfBoundsException("The player's starting y coordinate is invalid.");
 		}
 		
-		// Set up keys and delete the data from the save file.
-		if (data != null) {
+		// Set up keys and forget the save file.
+		if (save != null) {
 			keys.clear();
 			
-			for (int i = 6; i < data.length; i++) {
-				keys.add(data[i]);
+			for (String key : save.keys) {
+				keys.set(keyTable.intern(key));
 			}
 			
-			data = null;
+			save = null;
 		}
 		
 		// Reset the queued coordinates.
@@ -504,31 +471,53 @@ public class Game extends JFrame implements Runnable {
 		newY = y;
 		
 		// Get the starting room on that floor.
-		room = floor.get(map[ry][rx]);
+		room = getRoom(map[ry][rx]);
 		loadRoom(true);
 		// Put the player's piece in the starting coordinates.
 		room.act(true, false);
+		
+		// Let the listener know the floor has changed.
+		listener.floorLoaded(this);
+	}
+	
+	/**
+	 * Gets a {@link Room} on the current floor, creating it from its
+	 * {@link RoomDefinition} if this is the first time it has been entered since
+	 * the player came onto the floor. If the player has been in it before, it
+	 * is shown the way the player left it.
+	 * 
+	 * @param reference
+	 *            The reference character of the {@link Room} in the {@link #map}.
+	 * @return The {@link Room}, or <code>null</code> if there is no room with
+	 *         that reference character.
+	 * @throws IllegalArgumentException
+	 *             If the {@link RoomDefinition} cannot be created with its data
+	 *             given in the level.
+	 */
+	public Room getRoom(char reference) throws IllegalArgumentException {
+		Room loadedRoom = floor.get(reference);
+		if (loadedRoom == null) {
+			RoomDefinition definition = currentFloor.getDefinition(reference);
+			if (definition == null) {
+				return null;
+			}
+			loadedRoom = new Room(this, definition, roomTexts.get(reference));
+			floor.put(reference, loadedRoom);
+			roomTexts.put(reference, loadedRoom.room);
+		}
+		return loadedRoom;
 	}
 	
 	/**
-	 * This method sets the {@link #pane} with a 2 dimensional character map.
+	 * This method gives the {@link #listener} a 2 dimensional character map to
+	 * show. The map is not copied, so it is up to the listener to copy it if it
+	 * needs to keep it.
 	 * 
 	 * @param map 
 	 *            The character map this method will use.
 	 */
 	public void setDisplay(char[][] map) {
-		StringBuilder mapText = new StringBuilder();
-		for (char[] cc : map) {
-			for (char c : cc) {
-				mapText.append(c);
-			}
-			mapText.append("\n");
-		}
-		EventQueue.invokeLater(new Runnable() {
-			public void run() {
-				pane.setText(mapText.toString());
-			}
-		});
+		listener.showFrame(this, map);
 	}
 	
 	/**
@@ -580,18 +569,11 @@ public class Game extends JFrame implements Runnable {
 			
 			Transporter transporter = room.transporters.get(direction);
 			if (transporter != null) {
-				int[] data = transporter.data(this);
 				direction = transporter.direction;
-				// Check if the transporter is trying to move the player outside the room's boundaries.
-				if (!(data[3] >= Game.ROOM_WIDTH || data[3] < 0 || data[4] >= Game.ROOM_HEIGHT || data[4] < 0)) {
-					// In the case of a successful transport, the new room coordinates are changed.
-					rx = data[1];
-					ry = data[2];
-					newX = data[3];
-					newY = data[4];
-				} else {
+				// Move the player, unless the transporter is trying to move the player outside the room's boundaries.
+				if (!transporter.transport(this)) {
 					// In the case of a failed transport, do nothing and continue.
-					JOptionPane.showMessageDialog(null, "The transporter failed.");
+					listener.showMessage(this, null, "The transporter failed.");
 				}
 			}
 			
@@ -609,7 +591,7 @@ public class Game extends JFrame implements Runnable {
 				rx += map[ry].length;
 			}
 			
-			room = floor.get(map[ry][rx]);
+			room = getRoom(map[ry][rx]);
 		}
 		
 		// This while loop runs until the room remains constant or the Game ends.
@@ -618,19 +600,12 @@ public class Game extends JFrame implements Runnable {
 			if (Character.isLetter(map[ry][rx])) {
 				Transporter transmitter = room.transmitters.get(direction);
 				if (transmitter != null) {
-					// If there are transmitters, check if the transmitter is trying to move the player outside the room's boundaries. 
-					int[] data = transmitter.data(this);
+					// If there are transmitters, move the player unless the transmitter is trying to move the player outside the room's boundaries. 
 					direction = transmitter.direction;
-					if (!(data[3] >= Game.ROOM_WIDTH || data[3] < 0 || data[4] >= Game.ROOM_HEIGHT || data[4] < 0)) {
-						// In the case of a successful transport, the new room coordinates are changed.
-						rx = data[1];
-						ry = data[2];
-						newX = data[3];
-						newY = data[4];
-					} else {
+					if (!transmitter.transport(this)) {
 						// In the case of a failed transport, the loop closes.
 						roomChanged = false;
-						JOptionPane.showMessageDialog(null, "The transmitter failed.");
+						listener.showMessage(this, null, "The transmitter failed.");
 						break;
 					}
 				} else {
@@ -672,13 +647,16 @@ public class Game extends JFrame implements Runnable {
 				rx += map[ry].length;
 			}
 			
-			room = floor.get(map[ry][rx]);
+			room = getRoom(map[ry][rx]);
 		}
 		
 		// If the room has been changed at all through this process, then the player is forced to move and the room is reloaded.
 		if (roomChangedCopy) {
 			room.act(true, false);
 			room.reload();
+			
+			// Start building whatever the player may go to from the new room.
+			prefetcher.prefetchAround();
 		}
 	}
 	
@@ -689,7 +667,7 @@ public class Game extends JFrame implements Runnable {
 	 *            The message to decode.
 	 * @return The decoded message.
 	 */
-	public String decode(String message) {
+	public static String decode(String message) {
 		StringBuilder messageBuilder = new StringBuilder(message);
 		
 		int start;
@@ -0,0 +1,44 @@
+package com.zach.tmc;
+
+/**
+ * The <code>GameAdapter</code> class is a {@link GameListener} that ignores
+ * everything and agrees to every question. It can be extended to listen for
+ * only the things that matter, or used as it is to play a {@link Game} with
+ * nothing watching it.
+ *
+ * @author Zach K
+ */
+public class GameAdapter implements GameListener {
+	@Override
+	public void gameStarted(Game game) {
+	}
+	
+	@Override
+	public void floorLoaded(Game game) {
+	}
+	
+	@Override
+	public void showFrame(Game game, char[][] frame) {
+	}
+	
+	@Override
+	public void stateChanged(Game game) {
+	}
+	
+	@Override
+	public void showMessage(Game game, String title, String message) {
+	}
+	
+	@Override
+	public boolean confirm(Game game, String message) {
+		return true;
+	}
+	
+	@Override
+	public void gameSaved(Game game, SaveFile save) {
+	}
+	
+	@Override
+	public void gameEnded(Game game) {
+	}
+}
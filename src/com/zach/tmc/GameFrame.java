@@ -0,0 +1,367 @@
+package com.zach.tmc;
+
+import java.awt.EventQueue;
+import java.awt.Font;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+
+/**
+ * The <code>GameFrame</code> class is the window a {@link Game} is played in.
+ * It is the {@link GameListener} of its {@link Game}: it shows the frames and
+ * messages the {@link Game} gives it, asks the player its questions, and turns
+ * the keys the player presses into {@link Game.Input}s using the user's
+ * settings.
+ *
+ * @author Zach K
+ */
+public class GameFrame extends JFrame implements GameListener {
+	/** The reference to the launcher this <code>GameFrame</code> came from. */
+	public Launcher launcher;
+	/** The {@link Game} shown in this <code>GameFrame</code>, set once it starts. */
+	public volatile Game game;
+	
+	/** The main piece of the display that houses the main text and {@link KeyListener}. */
+	private DisplayPane pane;
+	/** The latest frame waiting to be shown in the {@link #pane}, or <code>null</code> if there is none. */
+	private final AtomicReference<char[][]> pendingFrame = new AtomicReference<char[][]>();
+	/** Shows the {@link #pendingFrame} in the {@link #pane}. Only ever queued once at a time. */
+	private final Runnable paintFrame = new Runnable() {
+		public void run() {
+			pane.showFrame(pendingFrame.getAndSet(null));
+		}
+	};
+	/** Resets the {@link Game#tick} every second for the {@link #debugger}. */
+	private Timer tickTimer;
+	
+	/** The user's settings, as they were when the {@link Game} started. */
+	public Settings settings;
+	
+	/** Whether or not autosaving has been started, whether or not it worked. */
+	private boolean autosaveStarted = false;
+	/** The autosave the {@link Game} was recovered from, which it carries on autosaving to, or <code>null</code> if it was not recovered. */
+	private Journal.Slot autosave;
+	
+	/** The {@link Debugger} that belongs to this <code>GameFrame</code>. */
+	public Debugger debugger;
+	
+	/**
+	 * Constructs a <code>GameFrame</code> with a reference to the
+	 * {@link Launcher} it started from. It is shown once its {@link Game}
+	 * starts.
+	 *
+	 * @param launcher
+	 *            The {@link Launcher} this <code>GameFrame</code> came from.
+	 */
+	public GameFrame(Launcher launcher) {
+		this.launcher = launcher;
+	}
+	
+	/**
+	 * Plays a {@link Game} in a new <code>GameFrame</code> on a thread of its own
+	 * in the {@link Launcher#sessions}.
+	 *
+	 * @param launcher
+	 *            The {@link Launcher} the {@link Game} came from.
+	 * @param levelPath
+	 *            The path to the level to play.
+	 */
+	public static void play(Launcher launcher, String levelPath) {
+		Launcher.sessions.start(new Game(levelPath, new GameFrame(launcher)));
+	}
+	
+	/**
+	 * Plays a {@link Game} from a save file in a new <code>GameFrame</code> on a
+	 * thread of its own in the {@link Launcher#sessions}.
+	 *
+	 * @param launcher
+	 *            The {@link Launcher} the {@link Game} came from.
+	 * @param save
+	 *            The save file to carry on from.
+	 */
+	public static void play(Launcher launcher, SaveFile save) {
+		Launcher.sessions.start(new Game(save, new GameFrame(launcher)));
+	}
+	
+	/**
+	 * Plays a {@link Game} recovered from an autosave in a new
+	 * <code>GameFrame</code> on a thread of its own in the
+	 * {@link Launcher#sessions}. The {@link Game} carries on autosaving to the
+	 * same autosave.
+	 *
+	 * @param launcher
+	 *            The {@link Launcher} the {@link Game} came from.
+	 * @param save
+	 *            The save file recovered from the autosave.
+	 * @param autosave
+	 *            The autosave, claimed with {@link Journal#claim(String)}. It is
+	 *            let go of once the {@link Game} ends.
+	 */
+	public static void play(Launcher launcher, SaveFile save, Journal.Slot autosave) {
+		GameFrame frame = new GameFrame(launcher);
+		frame.autosave = autosave;
+		Launcher.sessions.start(new Game(save, frame));
+	}
+	
+	/**
+	 * Collects the user settings and creates the display of the {@link Game}.
+	 */
+	@Override
+	public void gameStarted(final Game game) {
+		this.game = game;
+		
+		// Set up the debugger.
+		debugger = new Debugger(game);
+		
+		// Collect user settings. They were checked when they were set, so they can be used as they are.
+		settings = Launcher.settings.getSettings();
+		game.playerPiece = settings.playerPiece;
+		final int displaySize = settings.fontSize;
+		
+		// Reset the current tick the Game is on back to 0 every second and update the debugger.
+		tickTimer = new Timer(true);
+		tickTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				if (debugger.debugging) {
+					debugger.debugTPS(game.tick);
+					game.tick = 0;
+				}
+			}
+		}, 0, 1000);
+		
+		// Create the display of the Game.
+		EventQueue.invokeLater(new Runnable() {
+			public void run() {
+				// Set frame attributes.
+				setTitle("TMC - " + game.title);
+				setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+				
+				// Stop the Game when the display is closed.
+				addWindowListener(new WindowAdapter() {
+					@Override
+					public void windowClosed(WindowEvent e) {
+						game.stop();
+					}
+				});
+				
+				// Create the text pane inside the display.
+				pane = new DisplayPane(Game.ROOM_WIDTH, Game.ROOM_HEIGHT);
+				pane.addKeyListener(new KeyListener() {
+					
+					@Override
+					public void keyTyped(KeyEvent e) {
+					}
+					
+					@Override
+					public void keyPressed(KeyEvent e) {
+						// When a key is pressed, the input it is bound to is queued.
+						int keyCode = e.getKeyCode();
+						queueInput(keyCode);
+						if (keyCode == KeyEvent.VK_F1) {
+							JOptionPane.showMessageDialog(null, game.description, "Info - " + game.title, JOptionPane.PLAIN_MESSAGE);
+						}
+						if (e.isControlDown()) {
+							if (keyCode == KeyEvent.VK_D && !debugger.debugging) {
+								// If "Control + D" is pressed, then the debugger is displayed.
+								debugger.display();
+							} else if (keyCode == KeyEvent.VK_S) {
+								// If "Control + S" is pressed, then the Game is asked to save in between moves.
+								game.queueInput(Game.Input.SAVE);
+							}
+						}
+					}
+					
+					@Override
+					public void keyReleased(KeyEvent e) {
+					}
+					
+				});
+				pane.setFont(new Font("Consolas", Font.PLAIN, displaySize));
+				setResizable(false);
+				add(pane);
+				// Pack the frame so it's screen size appears just right.
+				pack();
+				
+				// Show the display.
+				setVisible(true);
+			}
+		});
+	}
+	
+	/**
+	 * Queues the input bound to a {@link KeyEvent} virtual key code for the
+	 * {@link Game}. Keys that are not bound to anything are ignored.
+	 *
+	 * @param keyCode
+	 *            The virtual key code of the key that was pressed.
+	 */
+	public void queueInput(int keyCode) {
+		if (keyCode == settings.leftKeyCode) {
+			game.queueInput(Game.Input.LEFT);
+		} else if (keyCode == settings.upKeyCode) {
+			game.queueInput(Game.Input.UP);
+		} else if (keyCode == settings.rightKeyCode) {
+			game.queueInput(Game.Input.RIGHT);
+		} else if (keyCode == settings.downKeyCode) {
+			game.queueInput(Game.Input.DOWN);
+		} else if (keyCode == settings.actionKeyCode) {
+			game.queueInput(Game.Input.ACTION);
+		}
+	}
+	
+	/**
+	 * Puts the map of the new floor into the debugger, and starts autosaving
+	 * the first time.
+	 */
+	@Override
+	public void floorLoaded(Game game) {
+		debugger.debugMap();
+		
+		// Start autosaving once the player is on the first floor, to the autosave it was recovered from or to one no other Game is using.
+		if (!autosaveStarted) {
+			autosaveStarted = true;
+			String problem;
+			try {
+				if (autosave != null) {
+					game.journal = new Journal(game, autosave);
+				} else {
+					game.journal = Journal.open(game, Launcher.getAutosavePaths());
+				}
+				problem = "too many other games are being autosaved.";
+			} catch (IOException e) {
+				problem = "the autosave could not be written.\nError: " + e.toString();
+			}
+			
+			// If there is no autosave, the Game is played without it, but the player is told so.
+			if (game.journal == null) {
+				showMessage(game, null, "This game will not be autosaved, since " + problem);
+			}
+		}
+	}
+	
+	/**
+	 * Shows a frame in the {@link #pane}. Only the characters that changed since
+	 * the last time are redrawn. If the display has not caught up with the last
+	 * frame yet, that frame is skipped in favor of this one, so at most one
+	 * update is ever waiting on the event queue.
+	 */
+	@Override
+	public void showFrame(Game game, char[][] map) {
+		// Copy the map, since it may change again before the display is updated.
+		char[][] frame = new char[map.length][];
+		for (int i = 0; i < map.length; i++) {
+			frame[i] = map[i].clone();
+		}
+		
+		// Replace the waiting frame. If there was none, nothing is queued to show it yet.
+		if (pendingFrame.getAndSet(frame) == null) {
+			EventQueue.invokeLater(paintFrame);
+		}
+	}
+	
+	/**
+	 * Lets the debugger know that the information has changed, if it is
+	 * showing.
+	 */
+	@Override
+	public void stateChanged(Game game) {
+		if (debugger.debugging) {
+			debugger.debug();
+		}
+	}
+	
+	@Override
+	public void showMessage(Game game, String title, String message) {
+		if (title == null) {
+			JOptionPane.showMessageDialog(null, message);
+		} else {
+			JOptionPane.showMessageDialog(null, message, title, JOptionPane.PLAIN_MESSAGE);
+		}
+	}
+	
+	@Override
+	public boolean confirm(Game game, String message) {
+		return JOptionPane.showConfirmDialog(null, message, "", JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION;
+	}
+	
+	/**
+	 * Asks the user where to save the {@link Game}, then writes the
+	 * {@link SaveFile} in the background with the {@link SaveWriter}.
+	 */
+	@Override
+	public void gameSaved(Game game, final SaveFile save) {
+		EventQueue.invokeLater(new Runnable() {
+			public void run() {
+				JFileChooser fileChooser = new JFileChooser();
+				fileChooser.setFileFilter(new SaveFileFilter());
+				fileChooser.setAcceptAllFileFilterUsed(false);
+				int returnValue = fileChooser.showSaveDialog(null);
+				if (returnValue != JFileChooser.APPROVE_OPTION) {
+					JOptionPane.showMessageDialog(null, "Could not save data.");
+					return;
+				}
+				
+				// Get the file path. If it does not end with .save, the path is recreated with that suffix.
+				String filePath = fileChooser.getSelectedFile().getPath();
+				if (!filePath.endsWith(SaveFile.EXTENSION)) {
+					filePath += SaveFile.EXTENSION;
+				}
+				
+				// Write the save file in the background, and tell the user how it went once it is done.
+				SaveWriter.write(save, filePath, new SaveWriter.Callback() {
+					@Override
+					public void saved(final String path) {
+						EventQueue.invokeLater(new Runnable() {
+							public void run() {
+								JOptionPane.showMessageDialog(null, "Sucessfully saved data to \"" + path + "\"");
+							}
+						});
+					}
+					
+					@Override
+					public void failed(final String path, final Exception e) {
+						EventQueue.invokeLater(new Runnable() {
+							public void run() {
+								JOptionPane.showMessageDialog(null, "Could not save data to \"" + path + "\".\nError: " + e.toString());
+							}
+						});
+					}
+				});
+			}
+		});
+	}
+	
+	/**
+	 * Disposes of the display and the debugger. This is queued on the event
+	 * queue behind the creation of the display, so a display that has not been
+	 * shown yet is never shown after it is disposed of.
+	 */
+	@Override
+	public void gameEnded(Game game) {
+		if (tickTimer != null) {
+			tickTimer.cancel();
+		}
+		// If the Game never started autosaving, the autosave it was recovered from is let go of here.
+		if (autosave != null) {
+			autosave.release();
+		}
+		EventQueue.invokeLater(new Runnable() {
+			public void run() {
+				dispose();
+				if (debugger != null) {
+					debugger.dispose();
+				}
+			}
+		});
+	}
+}
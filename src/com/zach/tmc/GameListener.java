@@ -0,0 +1,97 @@
+package com.zach.tmc;
+
+/**
+ * The <code>GameListener</code> interface is how a {@link Game} tells the
+ * outside world what is happening in it. A {@link Game} never shows anything
+ * by itself; everything it would show, ask, or tell the player goes through
+ * its <code>GameListener</code> instead, so the same {@link Game} can be shown
+ * in a window by a {@link GameFrame} or played without any display at all.
+ * Every method is called on the thread the {@link Game} runs on.
+ *
+ * @author Zach K
+ * @see GameAdapter
+ */
+public interface GameListener {
+	/**
+	 * Called once the level has been read and accepted, right before the first
+	 * floor is loaded. If this throws an exception, the {@link Game} ends
+	 * quietly.
+	 *
+	 * @param game
+	 *            The {@link Game} that is starting.
+	 */
+	void gameStarted(Game game);
+	
+	/**
+	 * Called whenever a floor has been loaded and the player has been put on it.
+	 *
+	 * @param game
+	 *            The {@link Game} the floor was loaded in.
+	 */
+	void floorLoaded(Game game);
+	
+	/**
+	 * Called whenever what the player sees changes.
+	 *
+	 * @param game
+	 *            The {@link Game} that changed.
+	 * @param frame
+	 *            The characters the player sees. The {@link Game} keeps changing
+	 *            it after this returns, so it must be copied to be kept.
+	 */
+	void showFrame(Game game, char[][] frame);
+	
+	/**
+	 * Called whenever the {@link Game} has moved the player, whether or not the
+	 * player actually went anywhere.
+	 *
+	 * @param game
+	 *            The {@link Game} that changed.
+	 */
+	void stateChanged(Game game);
+	
+	/**
+	 * Called when the {@link Game} has something to tell the player, such as a
+	 * message from the level or an error.
+	 *
+	 * @param game
+	 *            The {@link Game} the message is from.
+	 * @param title
+	 *            The title of the message, or <code>null</code> if it has none.
+	 * @param message
+	 *            The message.
+	 */
+	void showMessage(Game game, String title, String message);
+	
+	/**
+	 * Called when the {@link Game} needs the player to agree before going on.
+	 *
+	 * @param game
+	 *            The {@link Game} that is asking.
+	 * @param message
+	 *            The question.
+	 * @return True to go on, false otherwise.
+	 */
+	boolean confirm(Game game, String message);
+	
+	/**
+	 * Called when the player has asked to save, with a copy of the
+	 * {@link Game} taken in between moves. The copy never changes, so it can be
+	 * written on any thread.
+	 *
+	 * @param game
+	 *            The {@link Game} that was saved.
+	 * @param save
+	 *            The {@link SaveFile} of the {@link Game}.
+	 */
+	void gameSaved(Game game, SaveFile save);
+	
+	/**
+	 * Called once the {@link Game} has ended for any reason, including a level
+	 * that could not be read.
+	 *
+	 * @param game
+	 *            The {@link Game} that ended.
+	 */
+	void gameEnded(Game game);
+}
@@ -0,0 +1,771 @@
+package com.zach.tmc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * The <code>Journal</code> class autosaves a {@link Game} as it is played. Instead
+ * of writing the whole {@link Game} after every move, only what changed is
+ * added to the end of a journal file: where the player moved to, and which
+ * keys were set or cleared. Changes are written a few moves at a time, so
+ * playing costs next to nothing on the disk, and a crash loses at most the
+ * last {@link #FLUSH_INTERVAL} moves.
+ * <p>
+ * Every once in a while the journal is compacted: a {@link SaveFile} of the
+ * {@link Game} is written by the {@link SaveWriter}, and the journal starts
+ * over. {@link #recover(String)} reads the last {@link SaveFile} and replays
+ * the journals written since onto it. These are the files an autosave uses,
+ * named after its base path:
+ * <table border="1" cellpadding="2">
+ *   <caption>Autosave Files</caption>
+ *   <tr>
+ *     <th>File</th>
+ *     <th>Contents</th>
+ *   </tr>
+ *   <tr>
+ *     <td><b>base.save</b></td>
+ *     <td>the last {@link SaveFile} written</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>base.journal</b></td>
+ *     <td>the changes since the journal last started over</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>base.journal.old</b></td>
+ *     <td>the changes from before that, kept until the {@link SaveFile} taken
+ *     when the journal started over has been written</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>base.lock</b></td>
+ *     <td>locked while a {@link Game} is autosaving, so two {@link Game}s
+ *     never share an autosave</td>
+ *   </tr>
+ * </table>
+ * {@link #open(Game, String...)} picks one of a few autosaves that is not
+ * locked, so {@link Game}s played at the same time each get their own. An
+ * autosave being recovered is locked with {@link #claim(String)}, and the
+ * recovered {@link Game} carries on autosaving there. Once a {@link Game} has
+ * been beaten, its autosave is deleted with {@link #discard()}, since there is
+ * nothing left to carry on.
+ * A journal file starts with int {@link #MAGIC}, short {@link #FORMAT_VERSION},
+ * and the level path as a short length and its bytes in UTF-8. Each record
+ * after that starts with a byte saying what it is:
+ * {@link #POSITION} is followed by int floor, short rx, short ry, byte x, and
+ * byte y, while {@link #KEY_SET} and {@link #KEY_CLEAR} are followed by the
+ * name of the key, written like the level path. Every record holds a whole
+ * value rather than a difference, so replaying a record twice does no harm,
+ * and a record cut short by a crash is ignored.
+ *
+ * @author Zach K
+ */
+public class Journal {
+	/** The number every journal file starts with ("TMCJ"). */
+	public static final int MAGIC = 0x544D434A;
+	/** The version of the journal format. */
+	public static final int FORMAT_VERSION = 1;
+	/** The amount of moves whose changes are kept in memory before they are written. */
+	public static final int FLUSH_INTERVAL = 4;
+	/** The time between compactions of the journal, in milliseconds. */
+	public static final long COMPACT_INTERVAL = 60000;
+	
+	/** The record of where the player is. */
+	static final byte POSITION = 0;
+	/** The record of a key that was set. */
+	static final byte KEY_SET = 1;
+	/** The record of a key that was cleared. */
+	static final byte KEY_CLEAR = 2;
+	
+	/** The path to the last {@link SaveFile} written. */
+	private final Path snapshotPath;
+	/** The path to the journal file being written. */
+	private final Path journalPath;
+	/** The path to the journal file from before the last compaction. */
+	private final Path oldJournalPath;
+	/** The level path of the {@link Game}, in UTF-8. */
+	private final byte[] levelPath;
+	
+	/** The autosave this <code>Journal</code> writes, which stays locked while it is open. */
+	private final Slot slot;
+	/** The journal file being written. */
+	private FileChannel channel;
+	/** The changes that have not been written yet. */
+	private ByteBuffer buffer = ByteBuffer.allocate(1024);
+	/** The amount of moves whose changes are in the {@link #buffer}. */
+	private int pendingMoves = 0;
+	/** The last time the journal was compacted, in milliseconds. */
+	private long lastCompaction;
+	/** Waits for the {@link SaveFile} of the last compaction to be written, or <code>null</code> if there was none. */
+	private Future<?> compaction;
+	/** Whether or not this <code>Journal</code> has been closed, or has stopped because of an error. */
+	private boolean closed = false;
+	
+	/** The floor the player was on when the last change was recorded. */
+	private int floorNumber;
+	/** The x coordinate of the room the player was in when the last change was recorded. */
+	private int rx;
+	/** The y coordinate of the room the player was in when the last change was recorded. */
+	private int ry;
+	/** The x coordinate of the player when the last change was recorded. */
+	private int x;
+	/** The y coordinate of the player when the last change was recorded. */
+	private int y;
+	/** The keys that were active when the last change was recorded. */
+	private final BitSet keys = new BitSet();
+	
+	/**
+	 * Starts autosaving a {@link Game}. Any autosave that was at the base path
+	 * is replaced. It must be called on the thread the {@link Game} runs on,
+	 * once its first floor has been loaded.
+	 *
+	 * @param game
+	 *            The {@link Game} to autosave.
+	 * @param basePath
+	 *            The path the autosave files are named after.
+	 * @throws IOException
+	 *             If the autosave cannot be written, or another {@link Game} is
+	 *             already autosaving there.
+	 */
+	public Journal(Game game, String basePath) throws IOException {
+		this(game, basePath, claim(basePath));
+	}
+	
+	/**
+	 * Starts autosaving a {@link Game} to an autosave that has already been
+	 * claimed for it, such as the one it was recovered from. Any autosave there
+	 * is replaced. It must be called on the thread the {@link Game} runs on,
+	 * once its first floor has been loaded.
+	 *
+	 * @param game
+	 *            The {@link Game} to autosave.
+	 * @param slot
+	 *            The autosave claimed with {@link #claim(String)}. The
+	 *            <code>Journal</code> keeps it locked until it is closed.
+	 * @throws IOException
+	 *             If the autosave cannot be written, or the autosave has already
+	 *             been let go of.
+	 */
+	public Journal(Game game, Slot slot) throws IOException {
+		this(game, slot.basePath, slot);
+	}
+	
+	/**
+	 * Starts autosaving a {@link Game} to an autosave that has already been
+	 * locked for it.
+	 *
+	 * @param game
+	 *            The {@link Game} to autosave.
+	 * @param basePath
+	 *            The path the autosave files are named after.
+	 * @param slot
+	 *            The autosave, or <code>null</code> if another {@link Game} is
+	 *            autosaving there.
+	 * @throws IOException
+	 *             If the autosave cannot be written, or another {@link Game} is
+	 *             already autosaving there.
+	 */
+	private Journal(Game game, String basePath, Slot slot) throws IOException {
+		if (slot == null || !slot.take()) {
+			throw new IOException("Another game is already autosaving to \"" + basePath + "\"");
+		}
+		this.slot = slot;
+		snapshotPath = Paths.get(basePath + SaveFile.EXTENSION);
+		journalPath = Paths.get(basePath + ".journal");
+		oldJournalPath = Paths.get(basePath + ".journal.old");
+		levelPath = game.levelPath.getBytes(StandardCharsets.UTF_8);
+		
+		try {
+			// Replace the old autosave with the Game as it is now. The player is waiting for the floor anyway.
+			Files.deleteIfExists(oldJournalPath);
+			Files.deleteIfExists(journalPath);
+			writeSnapshot(SaveFile.capture(game));
+			openJournal();
+		} catch (IOException e) {
+			slot.unlock();
+			throw e;
+		}
+		remember(game);
+		lastCompaction = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Starts autosaving a {@link Game} to an autosave that no other
+	 * {@link Game} is using. Empty autosaves are used first, so an autosave
+	 * waiting to be recovered is only written over once every other autosave
+	 * is taken.
+	 *
+	 * @param game
+	 *            The {@link Game} to autosave.
+	 * @param basePaths
+	 *            The paths the autosaves are named after, in the order they are
+	 *            tried.
+	 * @return The <code>Journal</code>, or <code>null</code> if every autosave
+	 *         is being used.
+	 * @throws IOException
+	 *             If the autosave that was free cannot be written.
+	 */
+	public static Journal open(Game game, String... basePaths) throws IOException {
+		// Go through the autosaves twice: first for an empty one, then for any one at all.
+		for (int pass = 0; pass < 2; pass++) {
+			for (String basePath : basePaths) {
+				Slot slot = claim(basePath);
+				if (slot != null) {
+					if (pass == 1 || !exists(basePath)) {
+						return new Journal(game, slot);
+					}
+					slot.release();
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Claims an autosave by locking it, so that no other {@link Game} autosaves
+	 * there or recovers it until it is let go of. This is how an autosave is
+	 * held while it is being recovered.
+	 *
+	 * @param basePath
+	 *            The path the autosave files are named after.
+	 * @return The claimed autosave, or <code>null</code> if another
+	 *         {@link Game} is already using it.
+	 * @throws IOException
+	 *             If the lock file cannot be opened.
+	 */
+	public static Slot claim(String basePath) throws IOException {
+		Path lockPath = Paths.get(basePath + ".lock");
+		if (lockPath.getParent() != null) {
+			Files.createDirectories(lockPath.getParent());
+		}
+		FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+		FileLock lock;
+		try {
+			lock = lockChannel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			// Another Game in this program holds the lock.
+			lock = null;
+		}
+		if (lock == null) {
+			lockChannel.close();
+			return null;
+		}
+		return new Slot(basePath, lock);
+	}
+	
+	/**
+	 * Writes a {@link SaveFile} with the {@link SaveWriter} and waits for it.
+	 * Since the {@link SaveWriter} writes in order, this also waits for any
+	 * compaction left over from an earlier autosave, so it cannot overwrite
+	 * this one later.
+	 *
+	 * @param save
+	 *            The {@link SaveFile} to write.
+	 * @throws IOException
+	 *             If the {@link SaveFile} cannot be written.
+	 */
+	private void writeSnapshot(SaveFile save) throws IOException {
+		final Exception[] failure = new Exception[1];
+		Future<?> written = SaveWriter.write(save, snapshotPath.toString(), new SaveWriter.Callback() {
+			@Override
+			public void saved(String path) {
+			}
+			
+			@Override
+			public void failed(String path, Exception e) {
+				failure[0] = e;
+			}
+		});
+		try {
+			written.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing the autosave");
+		} catch (ExecutionException e) {
+			failure[0] = (Exception) e.getCause();
+		}
+		if (failure[0] instanceof IOException) {
+			throw (IOException) failure[0];
+		} else if (failure[0] != null) {
+			throw new IOException(failure[0]);
+		}
+	}
+	
+	/**
+	 * Starts a new, empty journal file, replacing the one that was there.
+	 *
+	 * @throws IOException
+	 *             If the journal file cannot be written.
+	 */
+	private void openJournal() throws IOException {
+		channel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		ByteBuffer header = ByteBuffer.allocate(8 + levelPath.length);
+		header.putInt(MAGIC);
+		header.putShort((short) FORMAT_VERSION);
+		header.putShort((short) levelPath.length);
+		header.put(levelPath);
+		header.flip();
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+	}
+	
+	/**
+	 * Remembers the state of a {@link Game}, so that only what changes after
+	 * this is recorded.
+	 *
+	 * @param game
+	 *            The {@link Game} to remember.
+	 */
+	private void remember(Game game) {
+		floorNumber = game.floorNumber;
+		rx = game.rx;
+		ry = game.ry;
+		x = game.x;
+		y = game.y;
+		keys.clear();
+		keys.or(game.keys);
+	}
+	
+	/**
+	 * Records what changed in a {@link Game} since the last move. It must be
+	 * called on the thread the {@link Game} runs on, after each move. If the
+	 * autosave cannot be written, the <code>Journal</code> stops and the
+	 * {@link Game} carries on without it.
+	 *
+	 * @param game
+	 *            The {@link Game} that moved.
+	 */
+	public void record(Game game) {
+		if (closed) {
+			return;
+		}
+		
+		// Record where the player is, if they went anywhere.
+		if (game.floorNumber != floorNumber || game.rx != rx || game.ry != ry || game.x != x || game.y != y) {
+			ensureCapacity(11);
+			buffer.put(POSITION);
+			buffer.putInt(game.floorNumber);
+			buffer.putShort((short) game.rx);
+			buffer.putShort((short) game.ry);
+			buffer.put((byte) game.x);
+			buffer.put((byte) game.y);
+		}
+		
+		// Record each key that changed.
+		if (!game.keys.equals(keys)) {
+			for (int id = game.keys.nextSetBit(0); id >= 0; id = game.keys.nextSetBit(id + 1)) {
+				if (!keys.get(id)) {
+					putKey(KEY_SET, game.keyTable.getName(id));
+				}
+			}
+			for (int id = keys.nextSetBit(0); id >= 0; id = keys.nextSetBit(id + 1)) {
+				if (!game.keys.get(id)) {
+					putKey(KEY_CLEAR, game.keyTable.getName(id));
+				}
+			}
+		}
+		remember(game);
+		
+		try {
+			if (++pendingMoves >= FLUSH_INTERVAL) {
+				flush();
+			}
+			if (System.currentTimeMillis() - lastCompaction >= COMPACT_INTERVAL) {
+				compact(game);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			close();
+		}
+	}
+	
+	/**
+	 * Adds a key record to the {@link #buffer}.
+	 *
+	 * @param type
+	 *            {@link #KEY_SET} or {@link #KEY_CLEAR}.
+	 * @param name
+	 *            The name of the key.
+	 */
+	private void putKey(byte type, String name) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, 0xFFFF);
+		ensureCapacity(3 + length);
+		buffer.put(type);
+		buffer.putShort((short) length);
+		buffer.put(bytes, 0, length);
+	}
+	
+	/**
+	 * Makes sure the {@link #buffer} has room for a record.
+	 *
+	 * @param size
+	 *            The size of the record.
+	 */
+	private void ensureCapacity(int size) {
+		if (buffer.remaining() < size) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+		}
+	}
+	
+	/**
+	 * Writes the changes in the {@link #buffer} to the journal file.
+	 *
+	 * @throws IOException
+	 *             If the journal file cannot be written.
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+		pendingMoves = 0;
+	}
+	
+	/**
+	 * Compacts the journal: the journal file is put aside and started over, and
+	 * a {@link SaveFile} of the {@link Game} is written in the background. The
+	 * journal file that was put aside is deleted once the {@link SaveFile} has
+	 * been written. If the last compaction has not finished yet, nothing is
+	 * done.
+	 *
+	 * @param game
+	 *            The {@link Game} being autosaved.
+	 * @throws IOException
+	 *             If the journal file cannot be started over.
+	 */
+	public void compact(Game game) throws IOException {
+		if (compaction != null && !compaction.isDone()) {
+			return;
+		}
+		flush();
+		
+		// If the last SaveFile could not be written, the changes put aside are still needed, so the journal carries on as it is.
+		if (!Files.exists(oldJournalPath)) {
+			channel.close();
+			try {
+				Files.move(journalPath, oldJournalPath, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(journalPath, oldJournalPath);
+			}
+			openJournal();
+		}
+		
+		compaction = SaveWriter.write(SaveFile.capture(game), snapshotPath.toString(), new SaveWriter.Callback() {
+			@Override
+			public void saved(String path) {
+				// Everything put aside is now in the SaveFile.
+				try {
+					Files.deleteIfExists(oldJournalPath);
+				} catch (IOException e) {
+				}
+			}
+			
+			@Override
+			public void failed(String path, Exception e) {
+			}
+		});
+		lastCompaction = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Writes what is left and stops autosaving. The autosave is kept, so it can
+	 * be recovered later. Calling it again does nothing.
+	 */
+	public void close() {
+		close(false);
+	}
+	
+	/**
+	 * Stops autosaving and deletes the autosave, such as when the {@link Game}
+	 * has been beaten. Calling it again does nothing.
+	 */
+	public void discard() {
+		close(true);
+	}
+	
+	/**
+	 * Stops autosaving. Calling it again does nothing.
+	 *
+	 * @param delete
+	 *            Whether or not to delete the autosave.
+	 */
+	private void close(boolean delete) {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			flush();
+		} catch (IOException e) {
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+		}
+		
+		// The autosave is deleted while it is still locked, so it cannot belong to another Game yet.
+		if (delete) {
+			try {
+				// A SaveFile still being written would bring the autosave back.
+				if (compaction != null) {
+					compaction.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+			}
+			try {
+				Files.deleteIfExists(snapshotPath);
+				Files.deleteIfExists(journalPath);
+				Files.deleteIfExists(oldJournalPath);
+			} catch (IOException e) {
+			}
+		}
+		slot.unlock();
+	}
+	
+	/**
+	 * Checks if there is an autosave that can be recovered.
+	 *
+	 * @param basePath
+	 *            The path the autosave files are named after.
+	 * @return True if there is an autosave, false otherwise.
+	 */
+	public static boolean exists(String basePath) {
+		return Files.exists(Paths.get(basePath + SaveFile.EXTENSION)) || Files.exists(Paths.get(basePath + ".journal"));
+	}
+	
+	/**
+	 * Recovers an autosave: the last {@link SaveFile} written is read, then the
+	 * journals written since are replayed onto it.
+	 *
+	 * @param basePath
+	 *            The path the autosave files are named after.
+	 * @return The {@link SaveFile} of the {@link Game} as it was last recorded,
+	 *         or <code>null</code> if there is no autosave.
+	 * @throws IOException
+	 *             If the autosave cannot be read.
+	 * @throws IllegalArgumentException
+	 *             If the autosave is corrupted.
+	 */
+	public static SaveFile recover(String basePath) throws IOException, IllegalArgumentException {
+		Recovery recovery = new Recovery();
+		
+		Path snapshotPath = Paths.get(basePath + SaveFile.EXTENSION);
+		if (Files.exists(snapshotPath)) {
+			SaveFile save = SaveFile.read(snapshotPath.toString());
+			recovery.levelPath = save.levelPath;
+			recovery.floorNumber = save.floorNumber;
+			recovery.rx = save.rx;
+			recovery.ry = save.ry;
+			recovery.x = save.x;
+			recovery.y = save.y;
+			for (String key : save.keys) {
+				recovery.keys.add(key);
+			}
+		}
+		recovery.replay(Paths.get(basePath + ".journal.old"));
+		recovery.replay(Paths.get(basePath + ".journal"));
+		
+		if (recovery.levelPath == null) {
+			return null;
+		}
+		return new SaveFile(recovery.levelPath, recovery.floorNumber, recovery.rx, recovery.ry, recovery.x, recovery.y,
+				recovery.keys.toArray(new String[recovery.keys.size()]));
+	}
+	
+	/**
+	 * The <code>Slot</code> class is an autosave that has been locked with
+	 * {@link Journal#claim(String)}. It is either handed to a
+	 * <code>Journal</code>, which keeps it locked until the <code>Journal</code>
+	 * is closed, or let go of with {@link #release()}.
+	 *
+	 * @author Zach K
+	 */
+	public static class Slot {
+		/** The path the autosave files are named after. */
+		public final String basePath;
+		/** The lock on the lock file of the autosave. */
+		private final FileLock lock;
+		/** Whether or not a <code>Journal</code> has taken over this <code>Slot</code>. */
+		private boolean taken = false;
+		/** Whether or not the {@link #lock} has been let go of. */
+		private boolean released = false;
+		
+		/**
+		 * Constructs a <code>Slot</code> for an autosave that has been locked.
+		 *
+		 * @param basePath
+		 *            The path the autosave files are named after.
+		 * @param lock
+		 *            The lock on the lock file of the autosave.
+		 */
+		private Slot(String basePath, FileLock lock) {
+			this.basePath = basePath;
+			this.lock = lock;
+		}
+		
+		/**
+		 * Hands this <code>Slot</code> to a <code>Journal</code>, unless it has
+		 * already been handed to one or let go of.
+		 *
+		 * @return True if the <code>Journal</code> can use it, false otherwise.
+		 */
+		private synchronized boolean take() {
+			if (taken || released) {
+				return false;
+			}
+			taken = true;
+			return true;
+		}
+		
+		/**
+		 * Lets go of this <code>Slot</code>, unless a <code>Journal</code> has
+		 * taken it over, in which case it is let go of when the
+		 * <code>Journal</code> is closed. Calling it again does nothing.
+		 */
+		public synchronized void release() {
+			if (!taken) {
+				unlock();
+			}
+		}
+		
+		/**
+		 * Unlocks the autosave. Calling it again does nothing.
+		 */
+		private synchronized void unlock() {
+			if (released) {
+				return;
+			}
+			released = true;
+			try {
+				lock.release();
+				lock.channel().close();
+			} catch (IOException e) {
+			}
+		}
+	}
+	
+	/**
+	 * The <code>Recovery</code> class holds a {@link Game} as it is rebuilt
+	 * from an autosave.
+	 *
+	 * @author Zach K
+	 */
+	private static class Recovery {
+		/** The path to the level, or <code>null</code> if nothing has been read yet. */
+		String levelPath;
+		/** The floor the player is on. */
+		int floorNumber;
+		/** The x coordinate of the room the player is in. */
+		int rx;
+		/** The y coordinate of the room the player is in. */
+		int ry;
+		/** The x coordinate of the player. */
+		int x;
+		/** The y coordinate of the player. */
+		int y;
+		/** The names of the keys that are active. */
+		final Set<String> keys = new LinkedHashSet<String>();
+		
+		/**
+		 * Replays a journal file, if it exists. A record cut short at the end of
+		 * the file is ignored.
+		 *
+		 * @param path
+		 *            The path to the journal file.
+		 * @throws IOException
+		 *             If the journal file cannot be read.
+		 * @throws IllegalArgumentException
+		 *             If the file is not a journal.
+		 */
+		void replay(Path path) throws IOException, IllegalArgumentException {
+			if (!Files.exists(path)) {
+				return;
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+			
+			// Read the header.
+			if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+				throw new IllegalArgumentException("\"" + path + "\" is not a journal");
+			}
+			int version = buffer.getShort();
+			if (version > FORMAT_VERSION) {
+				throw new IllegalArgumentException("\"" + path + "\" is from a newer version (" + version + ")");
+			}
+			String journalLevel = getString(buffer);
+			if (journalLevel == null) {
+				return;
+			}
+			levelPath = journalLevel;
+			
+			// Replay each record.
+			while (buffer.hasRemaining()) {
+				byte type = buffer.get();
+				if (type == POSITION) {
+					if (buffer.remaining() < 10) {
+						return;
+					}
+					floorNumber = buffer.getInt();
+					rx = buffer.getShort();
+					ry = buffer.getShort();
+					x = buffer.get();
+					y = buffer.get();
+				} else if (type == KEY_SET || type == KEY_CLEAR) {
+					String key = getString(buffer);
+					if (key == null) {
+						return;
+					}
+					if (type == KEY_SET) {
+						keys.add(key);
+					} else {
+						keys.remove(key);
+					}
+				} else {
+					// Anything else can only be the end of a record that was never finished.
+					return;
+				}
+			}
+		}
+		
+		/**
+		 * Reads a string from a journal file.
+		 *
+		 * @param buffer
+		 *            The buffer to read from.
+		 * @return The string, or <code>null</code> if it was cut short.
+		 */
+		private static String getString(ByteBuffer buffer) {
+			if (buffer.remaining() < 2) {
+				return null;
+			}
+			int length = buffer.getShort() & 0xFFFF;
+			if (buffer.remaining() < length) {
+				return null;
+			}
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+}
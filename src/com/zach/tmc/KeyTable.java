@@ -0,0 +1,59 @@
+package com.zach.tmc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The <code>KeyTable</code> class gives every key name used in a level its own
+ * integer ID. Keys are interned once when the level is loaded, so that doors
+ * and conditions can check the state of a key by its ID instead of searching
+ * for its name.
+ *
+ * @author Zach K
+ */
+public class KeyTable {
+	/** The IDs of the keys, by name. */
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	/** The names of the keys, by ID. */
+	private final ArrayList<String> names = new ArrayList<String>();
+	
+	/**
+	 * Gets the ID of a key, giving it a new ID if it does not have one yet.
+	 *
+	 * @param name
+	 *            The name of the key.
+	 * @return The ID of the key.
+	 */
+	public synchronized int intern(String name) {
+		Integer id = ids.get(name);
+		if (id == null) {
+			id = names.size();
+			ids.put(name, id);
+			names.add(name);
+		}
+		return id;
+	}
+	
+	/**
+	 * Gets the name of a key from its ID.
+	 *
+	 * @param id
+	 *            The ID of the key.
+	 * @return The name of the key.
+	 * @throws IndexOutOfBoundsException
+	 *             If no key has that ID.
+	 */
+	public synchronized String getName(int id) throws IndexOutOfBoundsException {
+		return names.get(id);
+	}
+	
+	/**
+	 * Gets the amount of keys in this <code>KeyTable</code>.
+	 *
+	 * @return The amount of keys.
+	 */
+	public synchronized int size() {
+		return names.size();
+	}
+}
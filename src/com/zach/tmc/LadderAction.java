@@ -0,0 +1,42 @@
+package com.zach.tmc;
+
+/**
+ * The <code>LadderAction</code> class is an {@link Action} that moves the
+ * player to another floor.
+ *
+ * @author Zach K
+ */
+class LadderAction extends Action {
+	/** The floor to move the player to. */
+	final Coordinate floor;
+	
+	LadderAction(String condition, KeyTable keyTable, Coordinate floor) throws IllegalArgumentException {
+		super(condition, keyTable);
+		this.floor = floor;
+	}
+	
+	LadderAction(BooleanEvaluator.Expression condition, Coordinate floor) {
+		super(condition);
+		this.floor = floor;
+	}
+	
+	@Override
+	void perform(Game game) {
+		int floor = this.floor.resolve(game.floorNumber);
+		
+		if (game.floorNumber != floor) {
+			try {
+				game.floorNumber = floor;
+				game.loadFloor();
+			} catch (Exception e) {
+				game.listener.showMessage(game, null, "Floor #" + game.floorNumber + " could not be loaded.\nError: " + e.toString());
+				game.gameRunning = false;
+			}
+		}
+	}
+	
+	@Override
+	String getAttributes() {
+		return "type=ladder,floor=" + floor;
+	}
+}
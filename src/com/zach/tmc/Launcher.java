@@ -12,12 +12,8 @@ import java.awt.event.MouseEvent;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileWriter;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -34,20 +30,6 @@ import javax.swing.JTextField;
 import javax.swing.UIManager;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 import javax.swing.SwingConstants;
 
 /**
@@ -91,17 +73,19 @@ public class Launcher extends JFrame {
 	private JLabel lblDisplaySizeNumber;
 	
 	// These are static objects. Some of these are created when the settings are loaded.
-			/** The settings.xml file in {@link Document} form. */
-			public static Document settingsFile;
-			/** Standard {@link XPath}. */
-			public static XPath xPath;
-			/** Standard {@link Transformer}. */
-			public static Transformer transformer;
+			/** The user's settings from the settings.xml file. */
+			public static SettingsStore settings;
+			/** Plays every {@link Game} started from a <code>Launcher</code>. */
+			public static final SessionHost sessions = new SessionHost();
 			
 			/** The main path of the application data in The Maze Caves. */
 			public static final String MAIN_PATH = System.getenv("APPDATA") + "\\TheMazeCaves";
 			/** The path for the settings.xml file in The Maze Caves. */
 			public static final String SETTINGS_PATH = MAIN_PATH + "\\settings.xml";
+			/** The path the autosave files of The Maze Caves are named after. */
+			public static final String AUTOSAVE_PATH = MAIN_PATH + "\\autosave";
+			/** The amount of autosaves, which is how many {@link Game}s can be autosaved at once. */
+			public static final int AUTOSAVE_COUNT = 8;
 
 	/**
 	 * Creates a <code>Launcher</code>. Each <code>Launcher</code> is a separate
@@ -129,6 +113,9 @@ public class Launcher extends JFrame {
 					
 					// Display the Launcher.
 					frame.setVisible(true);
+					
+					// If the last Game was autosaved, offer to carry on playing it.
+					frame.recoverAutosave();
 				} catch (Exception e) {
 					// Any errors that make it this far back to the main method have their stack trace printed.
 					e.printStackTrace();
@@ -137,6 +124,65 @@ public class Launcher extends JFrame {
 		});
 	}
 
+	/**
+	 * Gets the paths the files of each autosave are named after. The first is
+	 * {@link #AUTOSAVE_PATH}, and the rest are numbered after it.
+	 *
+	 * @return The paths, in the order they are used.
+	 */
+	public static String[] getAutosavePaths() {
+		String[] paths = new String[AUTOSAVE_COUNT];
+		paths[0] = AUTOSAVE_PATH;
+		for (int i = 1; i < paths.length; i++) {
+			paths[i] = AUTOSAVE_PATH + (i + 1);
+		}
+		return paths;
+	}
+	
+	/**
+	 * Offers to carry on playing each {@link Game} that was autosaved and not
+	 * finished, if there are any. Autosaves a {@link Game} is still being
+	 * autosaved to are left alone. A recovered {@link Game} carries on
+	 * autosaving to the autosave it was recovered from.
+	 */
+	private void recoverAutosave() {
+		for (String autosavePath : getAutosavePaths()) {
+			if (!Journal.exists(autosavePath)) {
+				continue;
+			}
+			
+			// Hold the autosave while it is recovered, so no other Game takes it in the meantime.
+			Journal.Slot slot;
+			try {
+				slot = Journal.claim(autosavePath);
+			} catch (IOException e) {
+				slot = null;
+			}
+			if (slot == null) {
+				continue;
+			}
+			
+			boolean recovered = false;
+			try {
+				if (JOptionPane.showConfirmDialog(null, "A game was autosaved.\nWould you like to carry on playing it?", "Autosave",
+						JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+					SaveFile save = Journal.recover(autosavePath);
+					if (save != null) {
+						GameFrame.play(this, save, slot);
+						recovered = true;
+					}
+				}
+			} catch (Exception e) {
+				JOptionPane.showMessageDialog(null, "Could not recover the autosave.\nError: " + e.toString());
+			} finally {
+				// An autosave that was not recovered is kept, so it can be offered again next time.
+				if (!recovered) {
+					slot.release();
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Constructor for creating a <code>Launcher</code>.
 	 */
@@ -220,29 +266,8 @@ public class Launcher extends JFrame {
 			@Override
 			public void actionPerformed(ActionEvent e) {
 				try {
-					// Read the save file.
-					BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(textFieldFilePath.getText()), "UTF8"));
-					byte key = (byte) reader.read();
-					
-					ArrayList<Character> characterList = new ArrayList<Character>();
-					while (reader.ready()) {
-						characterList.add((char) reader.read());
-					}
-					char[] dataArray = new char[characterList.size()];
-					
-					// Decode the save file.
-					for (int i = 0; i < dataArray.length; i++) {
-						dataArray[i] = (char) (characterList.get(i) / 10 - key);
-					}
-					
-					reader.close();
-					
-					String[] data = String.valueOf(dataArray).split("\n");
-					
-					// Create a game with the save file.
-					
-					Game game = new Game(launcher, data);
-					new Thread(game).start();
+					// Read the save file, and create a game with it.
+					GameFrame.play(launcher, SaveFile.read(textFieldFilePath.getText()));
 				} catch (Exception e1) {
 					JOptionPane.showMessageDialog(null, "Could not load that save file.");
 				}
@@ -460,7 +485,8 @@ public class Launcher extends JFrame {
 	}
 
 	/**
-	 * Sets the value of a setting in the settings.xml file.
+	 * Sets the value of a setting. The settings.xml file is written in the
+	 * background once the settings stop changing.
 	 * 
 	 * @param name
 	 *            The name of the setting
@@ -468,69 +494,28 @@ public class Launcher extends JFrame {
 	 *            The value to set
 	 */
 	public void setSetting(String name, String value) {
-		try {
-			// Get the node with the name specified.
-			Node setting = (Node) xPath.evaluate("/settings/" + name, settingsFile, XPathConstants.NODE);
-			// Set that node's text content to value.
-			setting.setTextContent(value);
-
-			// Write the changed settingsFile Document to the settings.xml file.
-			DOMSource source = new DOMSource(settingsFile);
-			StreamResult result = new StreamResult(new FileWriter(new File(SETTINGS_PATH)));
-			transformer.transform(source, result);
-		} catch (Exception e) {
-			// In the case of an error, rewrite the settings.xml file.
-			int input = JOptionPane.showConfirmDialog(null, "The settings.xml file could not be read.\nWould you like to recreate it?\n(Clicking no or cancel will close the launcher)");
-			if (input != JOptionPane.YES_OPTION) {
-				// If the user does not want to rewrite the settings.xml file, close the program.
-				System.exit(0);
-			} else {
-				makeSettingsFile();
-			}
-		}
+		settings.set(name, value);
 	}
-
+	
 	/**
-	 * Loads the settings.xml file and creates the {@link #xPath} and
-	 * {@link #transformer} objects.
+	 * Loads the settings.xml file into the {@link #settings}.
 	 */
 	public void loadSettings() {
 		try {
-			// Create the XPath and Transformer.
-			xPath = XPathFactory.newInstance().newXPath();
-			transformer = TransformerFactory.newInstance().newTransformer();
-			
-			// Load the settingsFile Document from the settings.xml file.
-			settingsFile = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(SETTINGS_PATH);
-
-			// Collect settings from settingsFile.
-			String filePath = xPath.evaluate("/settings/file_path", settingsFile);
-			int dividerLocation = Integer.parseInt(xPath.evaluate("/settings/divider_location", settingsFile));
-			int leftKeyCode = Integer.parseInt(xPath.evaluate("/settings/key_left", settingsFile));
-			int upKeyCode = Integer.parseInt(xPath.evaluate("/settings/key_up", settingsFile));
-			int rightKeyCode = Integer.parseInt(xPath.evaluate("/settings/key_right", settingsFile));
-			int downKeyCode = Integer.parseInt(xPath.evaluate("/settings/key_down", settingsFile));
-			int actionKeyCode = Integer.parseInt(xPath.evaluate("/settings/key_action", settingsFile));
-			char playerPiece = xPath.evaluate("/settings/player", settingsFile).charAt(0);
-			if (playerPiece == '\n') {
-				playerPiece = ' ';
-			}
-			int displaySize = Integer.parseInt(xPath.evaluate("/settings/font_size", settingsFile));
-
-			// Display the settings collected.
-			textFieldFilePath.setText(filePath);
-			splitPane.setDividerLocation(dividerLocation);
-			btnKeyLeft.setText(KeyEvent.getKeyText(leftKeyCode).toUpperCase());
-			btnKeyUp.setText(KeyEvent.getKeyText(upKeyCode).toUpperCase());
-			btnKeyRight.setText(KeyEvent.getKeyText(rightKeyCode).toUpperCase());
-			btnKeyDown.setText(KeyEvent.getKeyText(downKeyCode).toUpperCase());
-			btnKeyAction.setText(KeyEvent.getKeyText(actionKeyCode).toUpperCase());
-			btnPlayerPiece.setText(String.valueOf(playerPiece));
-			sliderDisplaySize.setValue(displaySize);
-		} catch (TransformerConfigurationException e) {
-			// In the case that the Transformer cannot be created, close the program. 
-			JOptionPane.showMessageDialog(null, "Could not create the Transformer.\nThe program will now exit.");
-			System.exit(3);
+			// Load the settings from the settings.xml file.
+			settings = SettingsStore.load(SETTINGS_PATH);
+
+			// Display the settings, which were checked when they were loaded.
+			Settings loaded = settings.getSettings();
+			textFieldFilePath.setText(loaded.filePath);
+			splitPane.setDividerLocation(loaded.dividerLocation);
+			btnKeyLeft.setText(KeyEvent.getKeyText(loaded.leftKeyCode).toUpperCase());
+			btnKeyUp.setText(KeyEvent.getKeyText(loaded.upKeyCode).toUpperCase());
+			btnKeyRight.setText(KeyEvent.getKeyText(loaded.rightKeyCode).toUpperCase());
+			btnKeyDown.setText(KeyEvent.getKeyText(loaded.downKeyCode).toUpperCase());
+			btnKeyAction.setText(KeyEvent.getKeyText(loaded.actionKeyCode).toUpperCase());
+			btnPlayerPiece.setText(String.valueOf(loaded.playerPiece));
+			sliderDisplaySize.setValue(loaded.fontSize);
 		} catch (Exception e) {
 			// In the case of any other error, rewrite the settings.xml file.
 			File directory = new File(MAIN_PATH);
@@ -546,7 +531,8 @@ public class Launcher extends JFrame {
 	}
 
 	/**
-	 * Makes the settings.xml file. These are the default settings:<br>
+	 * Makes the settings.xml file with the {@link Settings#DEFAULT} settings,
+	 * which are:<br>
 	 * <br>
 	 * <table border="1" cellpadding="2">
 	 *   <caption>Default Settings</caption>
@@ -591,72 +577,28 @@ public class Launcher extends JFrame {
 				directory.mkdirs();
 			}
 
-			// Create the settingsFile document.
-			DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-			settingsFile = builder.newDocument();
+			// Create the default settings.
+			settings = new SettingsStore(SETTINGS_PATH, Settings.DEFAULT);
 
-			// Create the rootElement.
-			Element rootElement = settingsFile.createElement("settings");
-			settingsFile.appendChild(rootElement);
+			// Set splitPane's divider location to 180.
+			splitPane.setDividerLocation(Settings.DEFAULT.dividerLocation);
 
-			// Create the filePathElement.
-			Element filePathElement = settingsFile.createElement("file_path");
-			rootElement.appendChild(filePathElement);
-
-			// Create the dividerLocationElement and set splitPane's divider location to 180.
-			Element dividerLocationElement = settingsFile.createElement("divider_location");
-			dividerLocationElement.appendChild(settingsFile.createTextNode("180"));
-			rootElement.appendChild(dividerLocationElement);
-			splitPane.setDividerLocation(180);
-
-			// Create the keyLeftElement and set btnKeyLeft's text to "LEFT".
-			Element keyLeftElement = settingsFile.createElement("key_left");
-			keyLeftElement.appendChild(settingsFile.createTextNode("37"));
-			rootElement.appendChild(keyLeftElement);
+			// Set the text of the key buttons to "LEFT", "UP", "RIGHT", "DOWN", and "ENTER".
 			btnKeyLeft.setText("LEFT");
-
-			// Create the keyUpElement and set btnKeyUp's text to "UP".
-			Element keyUpElement = settingsFile.createElement("key_up");
-			keyUpElement.appendChild(settingsFile.createTextNode("38"));
-			rootElement.appendChild(keyUpElement);
 			btnKeyUp.setText("UP");
-
-			// Create the keyRightElement and set btnKeyRight's text to "RIGHT".
-			Element keyRightElement = settingsFile.createElement("key_right");
-			keyRightElement.appendChild(settingsFile.createTextNode("39"));
-			rootElement.appendChild(keyRightElement);
 			btnKeyRight.setText("RIGHT");
-
-			// Create the keyDownElement and set btnKeyDown's text to "DOWN".
-			Element keyDownElement = settingsFile.createElement("key_down");
-			keyDownElement.appendChild(settingsFile.createTextNode("40"));
-			rootElement.appendChild(keyDownElement);
 			btnKeyDown.setText("DOWN");
-
-			// Create the keyActionElement and set btnKeyAction's text to "ENTER".
-			Element keyActionElement = settingsFile.createElement("key_action");
-			keyActionElement.appendChild(settingsFile.createTextNode("10"));
-			rootElement.appendChild(keyActionElement);
 			btnKeyAction.setText("ENTER");
 
-			// Create the playerElement and set btnPlayerPiece's text to "P".
-			Element playerElement = settingsFile.createElement("player");
-			playerElement.appendChild(settingsFile.createTextNode("P"));
-			rootElement.appendChild(playerElement);
-			btnPlayerPiece.setText("P");
-
-			// Create the fontSizeElement, set sliderDisplaySize's value to 32, and change lblDisplaySizeNumber.
-			Element fontSizeElement = settingsFile.createElement("font_size");
-			fontSizeElement.appendChild(settingsFile.createTextNode("32"));
-			rootElement.appendChild(fontSizeElement);
-			sliderDisplaySize.setValue(32);
+			// Set btnPlayerPiece's text to "P".
+			btnPlayerPiece.setText(String.valueOf(Settings.DEFAULT.playerPiece));
+
+			// Set sliderDisplaySize's value to 32 and change lblDisplaySizeNumber.
+			sliderDisplaySize.setValue(Settings.DEFAULT.fontSize);
 			setDisplaySizeNumberLabel();
 
-			// Write the changed settingsFile Document to the settings.xml file.
-			DOMSource source = new DOMSource(settingsFile);
-			
-			StreamResult result = new StreamResult(new File(SETTINGS_PATH));
-			transformer.transform(source, result);
+			// Write the settings to the settings.xml file right away.
+			settings.flush();
 		} catch (Exception e) {
 			// In the case of an error, close the program.
 			e.printStackTrace();
@@ -0,0 +1,212 @@
+package com.zach.tmc;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * The <code>Level</code> class holds everything read from a level that does
+ * not change while it is played: its header, its {@link KeyTable}, and the
+ * {@link Floor}s that have been loaded, along with their
+ * {@link RoomDefinition}s. Every {@link Game} playing the same level at the
+ * same time shares a single <code>Level</code>, so the level is only read and
+ * kept in memory once no matter how many are playing it. Each {@link Game}
+ * only keeps the state of its own player, such as where the player is and
+ * which keys they have.
+ * <p>
+ * A <code>Level</code> is taken with {@link #acquire(String)} and handed back
+ * with {@link #release()}. Once nothing is using a <code>Level</code> it is
+ * dropped, so a level that was changed on the disk is read again the next
+ * time it is played.
+ *
+ * @author Zach K
+ */
+public class Level {
+	/** The amount of floors no {@link Game} is on that are kept in the {@link #floors} by default. */
+	public static final int FLOOR_CACHE_SIZE = 4;
+	
+	/** The <code>Level</code>s being played, by the path to the level. */
+	private static final Map<String, Level> openLevels = new HashMap<String, Level>();
+	
+	/** The path to the level. */
+	public final String levelPath;
+	/** The {@link LevelLoader} that reads the level. Its header has already been read. */
+	public final LevelLoader loader;
+	/** The floors of the level that have already been loaded. */
+	public final FloorCache floors;
+	
+	/** The amount of {@link Game}s using this <code>Level</code>. */
+	private int users;
+	
+	/**
+	 * Reads the header of a level.
+	 *
+	 * @param levelPath
+	 *            The path to the level.
+	 * @param floorCacheSize
+	 *            The most floors no {@link Game} is on to keep loaded.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is written in XML that is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the level is not a valid level.
+	 */
+	private Level(String levelPath, int floorCacheSize) throws IOException, XMLStreamException, IllegalArgumentException {
+		this.levelPath = levelPath;
+		floors = new FloorCache(floorCacheSize);
+		loader = LevelLoader.forLevel(levelPath);
+		try {
+			loader.readHeader();
+		} catch (IOException | XMLStreamException | IllegalArgumentException e) {
+			loader.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Takes the <code>Level</code> for a level path, reading the level if
+	 * nothing is playing it yet. Up to {@link #FLOOR_CACHE_SIZE} floors no
+	 * {@link Game} is on are kept loaded. Every call must be matched by a call
+	 * to {@link #release()}.
+	 *
+	 * @param levelPath
+	 *            The path to the level.
+	 * @return The shared <code>Level</code>.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is written in XML that is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the level is not a valid level.
+	 */
+	public static Level acquire(String levelPath) throws IOException, XMLStreamException, IllegalArgumentException {
+		return acquire(levelPath, FLOOR_CACHE_SIZE);
+	}
+	
+	/**
+	 * Takes the <code>Level</code> for a level path, reading the level if
+	 * nothing is playing it yet. Every call must be matched by a call to
+	 * {@link #release()}.
+	 *
+	 * @param levelPath
+	 *            The path to the level.
+	 * @param floorCacheSize
+	 *            The most floors no {@link Game} is on to keep loaded. If the
+	 *            <code>Level</code> is already being played with fewer, it keeps
+	 *            this many from now on.
+	 * @return The shared <code>Level</code>.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is written in XML that is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the level is not a valid level, or the floor cache size is
+	 *             less than 1.
+	 */
+	public static Level acquire(String levelPath, int floorCacheSize) throws IOException, XMLStreamException, IllegalArgumentException {
+		synchronized (openLevels) {
+			Level level = openLevels.get(levelPath);
+			if (level != null) {
+				level.floors.ensureCapacity(floorCacheSize);
+				level.users++;
+				return level;
+			}
+		}
+		
+		// Read the level without holding the lock, so other levels can be taken in the meantime.
+		Level read = new Level(levelPath, floorCacheSize);
+		
+		// If another Game read the same level in the meantime, its copy is used.
+		synchronized (openLevels) {
+			Level level = openLevels.get(levelPath);
+			if (level == null) {
+				level = read;
+				openLevels.put(levelPath, level);
+			} else {
+				level.floors.ensureCapacity(floorCacheSize);
+				read.loader.close();
+			}
+			level.users++;
+			return level;
+		}
+	}
+	
+	/**
+	 * Hands back this <code>Level</code>. Once every {@link Game} that took it
+	 * has handed it back, it is dropped and its {@link #loader} is closed.
+	 */
+	public void release() {
+		synchronized (openLevels) {
+			if (users > 0 && --users == 0 && openLevels.get(levelPath) == this) {
+				openLevels.remove(levelPath);
+				loader.close();
+			}
+		}
+	}
+	
+	/**
+	 * Gets a floor of this <code>Level</code>, loading it if it has not been
+	 * loaded yet or has been dropped from the {@link #floors}.
+	 *
+	 * @param floorNumber
+	 *            The number of the floor.
+	 * @return The floor.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is written in XML that is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the floor does not exist or cannot be created with the data
+	 *             given.
+	 */
+	public Floor getFloor(int floorNumber) throws IOException, XMLStreamException, IllegalArgumentException {
+		Floor floor = floors.get(floorNumber);
+		if (floor == null) {
+			// If another Game loaded the same floor in the meantime, its copy is used.
+			floor = floors.putIfAbsent(loader.loadFloor(floorNumber));
+		}
+		return floor;
+	}
+	
+	/**
+	 * Gets a floor of this <code>Level</code> for a {@link Game} that is going
+	 * onto it, loading it if it has not been loaded yet. The floor is kept
+	 * loaded until {@link #releaseFloor(int)} is called for it, however many
+	 * other floors are loaded in the meantime.
+	 *
+	 * @param floorNumber
+	 *            The number of the floor.
+	 * @return The floor.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is written in XML that is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the floor does not exist or cannot be created with the data
+	 *             given.
+	 */
+	public Floor useFloor(int floorNumber) throws IOException, XMLStreamException, IllegalArgumentException {
+		// Mark the floor before getting it, so it cannot be dropped between being loaded and being marked.
+		floors.use(floorNumber);
+		try {
+			return getFloor(floorNumber);
+		} catch (IOException | XMLStreamException | IllegalArgumentException e) {
+			floors.release(floorNumber);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Lets a floor taken with {@link #useFloor(int)} be dropped again, once no
+	 * other {@link Game} is on it.
+	 *
+	 * @param floorNumber
+	 *            The number of the floor.
+	 */
+	public void releaseFloor(int floorNumber) {
+		floors.release(floorNumber);
+	}
+}
@@ -0,0 +1,800 @@
+package com.zach.tmc;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * The <code>LevelCompiler</code> class compiles levels written in XML into the
+ * compiled level format read by the {@link BinaryLevelLoader}. It reads each
+ * level with the same {@link XmlLevelLoader} the game uses, so a compiled level
+ * always plays the same as the level it came from. It is run from the command
+ * line with the paths of the levels to compile:
+ *
+ * <pre>
+ * java com.zach.tmc.LevelCompiler src/levels/level-1.xml src/levels/level-2.xml
+ * </pre>
+ *
+ * Each compiled level is written next to its level, with its extension
+ * replaced by {@link BinaryLevelLoader#EXTENSION}. To put all of the levels
+ * into one {@link LevelPack} instead, the path of the pack is given first:
+ *
+ * <pre>
+ * java com.zach.tmc.LevelCompiler -pack levels.tmcp src/levels/level-1.xml src/levels/level-2.xml
+ * </pre>
+ *
+ * Each level in the pack is named after its file, without its extension. To
+ * check that levels play the same once they are compiled, both on their own and
+ * in a pack, <code>-check</code> is given first instead:
+ *
+ * <pre>
+ * java com.zach.tmc.LevelCompiler -check src/levels/level-1.xml src/levels/level-2.xml test/levels/doctype.xml
+ * </pre>
+ *
+ * This compiles the levels into temporary files, compares every floor and room
+ * read from them with the levels written in XML, and plays the same
+ * {@link #CHECK_REPLAYS} runs of random inputs on every form of each level,
+ * which must all end the same way.
+ *
+ * @author Zach K
+ */
+public class LevelCompiler {
+	/** The amount of runs of random inputs {@link #check(List)} replays on each form of a level. */
+	public static final int CHECK_REPLAYS = 20;
+	/** The amount of inputs in each run {@link #check(List)} replays. */
+	public static final int CHECK_STEPS = 3000;
+	
+	/** The level being compiled. */
+	private final XmlLevelLoader loader;
+	/** The string table of the compiled level, with the index of each string. */
+	private final Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+	/** The palette of the compiled level, with the index of each character. */
+	private final Map<Character, Integer> palette = new LinkedHashMap<Character, Integer>();
+	
+	/**
+	 * Constructs a <code>LevelCompiler</code> for a level.
+	 *
+	 * @param levelPath
+	 *            The path to the level written in XML.
+	 */
+	private LevelCompiler(String levelPath) {
+		loader = new XmlLevelLoader(levelPath);
+	}
+	
+	/**
+	 * Compiles each level given.
+	 *
+	 * @param args
+	 *            The paths to the levels to compile.
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0 || args[0].equals("-pack") && args.length < 3 || args[0].equals("-check") && args.length < 2) {
+			System.err.println("Usage: java com.zach.tmc.LevelCompiler [-pack <pack" + LevelPack.EXTENSION + "> | -check] <level.xml>...");
+			System.exit(2);
+		}
+		
+		if (args[0].equals("-check")) {
+			// Compile the levels to temporary files and check that they play the same.
+			try {
+				if (!check(Arrays.asList(args).subList(1, args.length))) {
+					System.exit(1);
+				}
+			} catch (Exception e) {
+				System.err.println("Could not check the levels: " + e.toString());
+				System.exit(1);
+			}
+			return;
+		}
+		
+		if (args[0].equals("-pack")) {
+			// Compile every level into one pack.
+			Map<String, byte[]> levels = new LinkedHashMap<String, byte[]>();
+			try {
+				for (int i = 2; i < args.length; i++) {
+					String name = new File(outputPath(args[i])).getName();
+					name = name.substring(0, name.length() - BinaryLevelLoader.EXTENSION.length());
+					levels.put(name, compileLevel(args[i]));
+				}
+				LevelPack.write(args[1], levels);
+				System.out.println("Packed " + levels.size() + " levels into \"" + args[1] + "\"");
+			} catch (Exception e) {
+				System.err.println("Could not pack \"" + args[1] + "\": " + e.toString());
+				System.exit(1);
+			}
+			return;
+		}
+		
+		boolean failed = false;
+		for (String levelPath : args) {
+			String outputPath = outputPath(levelPath);
+			try {
+				compile(levelPath, outputPath);
+				System.out.println("Compiled \"" + levelPath + "\" to \"" + outputPath + "\"");
+			} catch (Exception e) {
+				System.err.println("Could not compile \"" + levelPath + "\": " + e.toString());
+				failed = true;
+			}
+		}
+		if (failed) {
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Checks that each level plays the same once it is compiled, both on its
+	 * own and in a {@link LevelPack}. The levels are compiled into a directory
+	 * of temporary files, which is deleted afterward. Every floor and room of
+	 * each compiled form is compared with the level written in XML, then the
+	 * same {@link #CHECK_REPLAYS} runs of {@link #CHECK_STEPS} random inputs are
+	 * replayed on every form, which must all end the same way. What was found is
+	 * shown for each level.
+	 *
+	 * @param levelPaths
+	 *            The paths to the levels written in XML.
+	 * @return True if every level plays the same once it is compiled, false
+	 *         otherwise.
+	 * @throws IOException
+	 *             If a level cannot be read or the temporary files cannot be
+	 *             written.
+	 * @throws XMLStreamException
+	 *             If a level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If a level is not valid, for a wide variety of reasons.
+	 */
+	public static boolean check(List<String> levelPaths) throws IOException, XMLStreamException, IllegalArgumentException {
+		File directory = Files.createTempDirectory("tmc-check").toFile();
+		List<File> files = new ArrayList<File>();
+		try {
+			// Compile each level on its own, and every level into one pack.
+			Map<String, byte[]> levels = new LinkedHashMap<String, byte[]>();
+			for (String levelPath : levelPaths) {
+				String name = new File(outputPath(levelPath)).getName();
+				name = name.substring(0, name.length() - BinaryLevelLoader.EXTENSION.length());
+				if (levels.containsKey(name)) {
+					throw new IllegalArgumentException("There is more than one level named \"" + name + "\"");
+				}
+				byte[] compiled = compileLevel(levelPath);
+				levels.put(name, compiled);
+				File file = new File(directory, name + BinaryLevelLoader.EXTENSION);
+				files.add(file);
+				Files.write(file.toPath(), compiled);
+			}
+			File pack = new File(directory, "check" + LevelPack.EXTENSION);
+			files.add(pack);
+			LevelPack.write(pack.getPath(), levels);
+			
+			boolean passed = true;
+			int i = 0;
+			for (Map.Entry<String, byte[]> level : levels.entrySet()) {
+				String levelPath = levelPaths.get(i);
+				String[] forms = { files.get(i++).getPath(), pack.getPath() + LevelPack.SEPARATOR + level.getKey() };
+				List<String> problems = new ArrayList<String>();
+				
+				// Compare every floor and room.
+				List<Integer> floorNumbers = new XmlLevelLoader(levelPath).listFloors();
+				String expected = describe(levelPath, floorNumbers);
+				for (String form : forms) {
+					if (!describe(form, floorNumbers).equals(expected)) {
+						problems.add("its floors and rooms are not the same in \"" + form + "\"");
+					}
+				}
+				
+				// Replay the same random inputs on every form.
+				for (int seed = 0; seed < CHECK_REPLAYS; seed++) {
+					Game.Input[] inputs = ReplayRunner.random(new Random(seed), CHECK_STEPS);
+					String outcome = getOutcome(ReplayRunner.replay(levelPath, inputs));
+					for (String form : forms) {
+						if (!getOutcome(ReplayRunner.replay(form, inputs)).equals(outcome)) {
+							problems.add("replay #" + seed + " does not end the same way in \"" + form + "\"");
+						}
+					}
+				}
+				
+				if (problems.isEmpty()) {
+					System.out.println("\"" + levelPath + "\" plays the same compiled (" + level.getValue().length + " bytes, "
+							+ new File(levelPath).length() + " written in XML)");
+				} else {
+					passed = false;
+					for (String problem : problems) {
+						System.err.println("\"" + levelPath + "\": " + problem);
+					}
+				}
+			}
+			return passed;
+		} finally {
+			for (File file : files) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+	
+	/**
+	 * Describes everything in a level that is read from it, so that two forms
+	 * of the same level can be compared.
+	 *
+	 * @param levelPath
+	 *            The path to the level, in any form.
+	 * @param floorNumbers
+	 *            The numbers of the floors in the level.
+	 * @return The description of the level.
+	 * @throws IOException
+	 *             If the level cannot be read.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the level is not valid, for a wide variety of reasons.
+	 */
+	private static String describe(String levelPath, List<Integer> floorNumbers) throws IOException, XMLStreamException, IllegalArgumentException {
+		LevelLoader loader = LevelLoader.forLevel(levelPath);
+		try {
+			loader.readHeader();
+			StringBuilder description = new StringBuilder();
+			description.append(loader.title).append('\n').append(loader.description).append('\n');
+			description.append(loader.message).append('\n').append(loader.version).append('\n');
+			
+			for (int floorNumber : floorNumbers) {
+				// Describe the floor.
+				Floor floor = loader.loadFloor(floorNumber);
+				floor.buildDefinitions();
+				description.append("floor ").append(floor.number).append(' ').append(Arrays.deepToString(floor.map));
+				if (floor.hasPlayer) {
+					description.append(" player ").append(floor.playerRx).append(',').append(floor.playerRy);
+					description.append(',').append(floor.playerX).append(',').append(floor.playerY);
+				}
+				description.append('\n');
+				
+				// Describe each of its rooms, in order.
+				for (RoomDefinition room : new TreeMap<Character, RoomDefinition>(floor.definitions).values()) {
+					description.append("room ").append(room.reference).append(' ').append(Arrays.deepToString(room.map));
+					description.append(' ').append(Arrays.deepToString(room.display)).append('\n');
+					for (Game.Direction direction : Game.Direction.values()) {
+						describe(description, "transporter", direction, room.transporters.get(direction));
+						describe(description, "transmitter", direction, room.transmitters.get(direction));
+					}
+					description.append(Arrays.toString(room.objects)).append('\n');
+				}
+			}
+			return description.toString();
+		} finally {
+			loader.close();
+		}
+	}
+	
+	/**
+	 * Describes a transporter or transmitter, if there is one.
+	 *
+	 * @param description
+	 *            The description to add to.
+	 * @param kind
+	 *            "transporter" or "transmitter".
+	 * @param from
+	 *            The direction the transporter is used from.
+	 * @param transporter
+	 *            The transporter, or <code>null</code> if there is none.
+	 */
+	private static void describe(StringBuilder description, String kind, Game.Direction from, Transporter transporter) {
+		if (transporter != null) {
+			description.append(kind).append(' ').append(from).append(' ').append(transporter.direction);
+			description.append(' ').append(transporter.rx).append(',').append(transporter.ry);
+			description.append(',').append(transporter.x).append(',').append(transporter.y).append('\n');
+		}
+	}
+	
+	/**
+	 * Gets how a replay ended, including the last message it showed.
+	 *
+	 * @param result
+	 *            The result of the replay.
+	 * @return How the replay ended.
+	 */
+	private static String getOutcome(ReplayRunner.Result result) {
+		return result.getState() + ",message=" + result.message;
+	}
+	
+	/**
+	 * Gets the path a level is compiled to by default.
+	 *
+	 * @param levelPath
+	 *            The path to the level written in XML.
+	 * @return The path to write the compiled level to.
+	 */
+	public static String outputPath(String levelPath) {
+		int dot = levelPath.lastIndexOf('.');
+		if (dot > Math.max(levelPath.lastIndexOf('/'), levelPath.lastIndexOf('\\'))) {
+			levelPath = levelPath.substring(0, dot);
+		}
+		return levelPath + BinaryLevelLoader.EXTENSION;
+	}
+	
+	/**
+	 * Compiles a level.
+	 *
+	 * @param levelPath
+	 *            The path to the level written in XML.
+	 * @param outputPath
+	 *            The path to write the compiled level to.
+	 * @throws IOException
+	 *             If the level cannot be read or the compiled level cannot be
+	 *             written.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the level is not valid, for a wide variety of reasons.
+	 */
+	public static void compile(String levelPath, String outputPath) throws IOException, XMLStreamException, IllegalArgumentException {
+		byte[] compiled = compileLevel(levelPath);
+		
+		// The compiled level may be mapped by a Game playing it, so it is replaced rather than written over.
+		SaveFile.writeAtomically(outputPath, ByteBuffer.wrap(compiled));
+	}
+	
+	/**
+	 * Compiles a level into memory.
+	 *
+	 * @param levelPath
+	 *            The path to the level written in XML.
+	 * @return The compiled level.
+	 * @throws IOException
+	 *             If the level cannot be read.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the level is not valid, for a wide variety of reasons.
+	 */
+	public static byte[] compileLevel(String levelPath) throws IOException, XMLStreamException, IllegalArgumentException {
+		return new LevelCompiler(levelPath).compile();
+	}
+	
+	/**
+	 * Compiles the level.
+	 *
+	 * @return The compiled level.
+	 * @throws IOException
+	 *             If the level cannot be read.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the level is not valid, for a wide variety of reasons.
+	 */
+	private byte[] compile() throws IOException, XMLStreamException, IllegalArgumentException {
+		loader.readHeader();
+		
+		// Write the floors and rooms first, since the index needs to know where they are.
+		ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+		DataOutputStream body = new DataOutputStream(bodyBytes);
+		List<Integer> floorNumbers = loader.listFloors();
+		List<Integer> floorOffsets = new ArrayList<Integer>(floorNumbers.size());
+		for (int floorNumber : floorNumbers) {
+			floorOffsets.add(writeFloor(body, loader.loadFloor(floorNumber)));
+		}
+		body.flush();
+		
+		int title = string(loader.title);
+		int description = string(loader.description);
+		int message = string(loader.message);
+		int version = string(loader.version);
+		
+		ByteArrayOutputStream levelBytes = new ByteArrayOutputStream(bodyBytes.size() + 1024);
+		DataOutputStream level = new DataOutputStream(new BufferedOutputStream(levelBytes));
+		
+		// Write the header.
+		level.writeInt(BinaryLevelLoader.MAGIC);
+		level.writeShort(BinaryLevelLoader.FORMAT_VERSION);
+		level.writeShort(Game.ROOM_WIDTH);
+		level.writeShort(Game.ROOM_HEIGHT);
+		
+		// Write the string table.
+		writeVarInt(level, strings.size());
+		for (String string : strings.keySet()) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(level, bytes.length);
+			level.write(bytes);
+		}
+		
+		// Write the palette.
+		writeVarInt(level, palette.size());
+		for (char c : palette.keySet()) {
+			writeVarInt(level, c);
+		}
+		
+		writeVarInt(level, title);
+		writeVarInt(level, description);
+		writeVarInt(level, message);
+		writeVarInt(level, version);
+		
+		// Write the floor index, then everything it points to.
+		writeVarInt(level, floorNumbers.size());
+		for (int i = 0; i < floorNumbers.size(); i++) {
+			writeSignedVarInt(level, floorNumbers.get(i));
+			writeVarInt(level, floorOffsets.get(i));
+		}
+		bodyBytes.writeTo(level);
+		level.close();
+		
+		return levelBytes.toByteArray();
+	}
+	
+	/**
+	 * Writes a floor and all of its rooms.
+	 *
+	 * @param body
+	 *            The stream to write to.
+	 * @param floor
+	 *            The floor to write.
+	 * @return The offset of the floor's record.
+	 * @throws IOException
+	 *             If the floor cannot be written.
+	 * @throws IllegalArgumentException
+	 *             If a room cannot be created with the data given, or the level
+	 *             uses too many different characters.
+	 */
+	private int writeFloor(DataOutputStream body, Floor floor) throws IOException, IllegalArgumentException {
+		floor.buildDefinitions();
+		
+		// Write the rooms, in order so the same level always compiles the same.
+		Map<Character, Integer> roomOffsets = new TreeMap<Character, Integer>();
+		for (RoomDefinition room : new TreeMap<Character, RoomDefinition>(floor.definitions).values()) {
+			roomOffsets.put(room.reference, body.size());
+			writeRoom(body, room);
+		}
+		
+		int offset = body.size();
+		
+		// Write where the player starts.
+		body.writeBoolean(floor.hasPlayer);
+		writeSignedVarInt(body, floor.playerRx);
+		writeSignedVarInt(body, floor.playerRy);
+		writeSignedVarInt(body, floor.playerX);
+		writeSignedVarInt(body, floor.playerY);
+		
+		// Write the map.
+		writeVarInt(body, floor.map.length);
+		for (char[] row : floor.map) {
+			writeVarInt(body, row.length);
+			writeChars(body, row);
+		}
+		
+		// Write the room index.
+		writeVarInt(body, roomOffsets.size());
+		for (Map.Entry<Character, Integer> room : roomOffsets.entrySet()) {
+			body.writeByte(paletteIndex(room.getKey()));
+			writeVarInt(body, room.getValue());
+		}
+		return offset;
+	}
+	
+	/**
+	 * Writes a room.
+	 *
+	 * @param body
+	 *            The stream to write to.
+	 * @param room
+	 *            The room to write.
+	 * @throws IOException
+	 *             If the room cannot be written.
+	 * @throws IllegalArgumentException
+	 *             If the level uses too many different characters.
+	 */
+	private void writeRoom(DataOutputStream body, RoomDefinition room) throws IOException, IllegalArgumentException {
+		// Write the map without any objects.
+		for (char[] row : room.map) {
+			writeChars(body, row);
+		}
+		
+		// Write the transporters and transmitters.
+		body.writeByte(room.transporters.size() + room.transmitters.size());
+		for (Map.Entry<Game.Direction, Transporter> transporter : room.transporters.entrySet()) {
+			writeTransporter(body, BinaryLevelLoader.TRANSPORTER, transporter.getKey(), transporter.getValue());
+		}
+		for (Map.Entry<Game.Direction, Transporter> transmitter : room.transmitters.entrySet()) {
+			writeTransporter(body, BinaryLevelLoader.TRANSMITTER, transmitter.getKey(), transmitter.getValue());
+		}
+		
+		// Write a record for each object.
+		List<Button> buttons = new ArrayList<Button>();
+		int objectCount = 0;
+		for (RoomObject object : room.objects) {
+			if (object != null) {
+				objectCount++;
+			}
+		}
+		writeVarInt(body, objectCount);
+		for (int i = 0; i < room.objects.length; i++) {
+			RoomObject object = room.objects[i];
+			if (object == null) {
+				continue;
+			}
+			
+			int flags = 0;
+			if (object.collidable) {
+				flags |= BinaryLevelLoader.COLLIDABLE;
+			}
+			if (object.notify) {
+				flags |= BinaryLevelLoader.NOTIFY;
+			}
+			if (object.instant) {
+				flags |= BinaryLevelLoader.INSTANT;
+			}
+			
+			byte type;
+			int argument = 0;
+			if (object instanceof Door) {
+				type = BinaryLevelLoader.DOOR;
+				argument = string(((Door) object).keyName);
+				if (((Door) object).inverted) {
+					flags |= BinaryLevelLoader.INVERTED;
+				}
+			} else if (object instanceof Button) {
+				type = BinaryLevelLoader.BUTTON;
+				argument = ((Button) object).actions.size();
+				buttons.add((Button) object);
+			} else {
+				type = BinaryLevelLoader.BLOCK;
+			}
+			
+			body.writeByte(type);
+			body.writeByte(i % Game.ROOM_WIDTH);
+			body.writeByte(i / Game.ROOM_WIDTH);
+			body.writeByte(paletteIndex(object.piece));
+			body.writeByte(flags);
+			writeVarInt(body, argument);
+		}
+		
+		// Write the actions of each button, in the same order as the buttons.
+		for (Button button : buttons) {
+			for (Action action : button.actions) {
+				writeAction(body, action);
+			}
+		}
+	}
+	
+	/**
+	 * Writes a transporter or transmitter.
+	 *
+	 * @param body
+	 *            The stream to write to.
+	 * @param kind
+	 *            {@link BinaryLevelLoader#TRANSPORTER} or
+	 *            {@link BinaryLevelLoader#TRANSMITTER}.
+	 * @param from
+	 *            The direction the transporter is used from.
+	 * @param transporter
+	 *            The transporter to write.
+	 * @throws IOException
+	 *             If the transporter cannot be written.
+	 */
+	private void writeTransporter(DataOutputStream body, byte kind, Game.Direction from, Transporter transporter) throws IOException {
+		body.writeByte(kind);
+		body.writeByte(from.ordinal());
+		body.writeByte(transporter.direction.ordinal());
+		writeCoordinate(body, transporter.rx);
+		writeCoordinate(body, transporter.ry);
+		writeCoordinate(body, transporter.x);
+		writeCoordinate(body, transporter.y);
+	}
+	
+	/**
+	 * Writes an action as its opcode, its compiled condition if it has one, and
+	 * its operands.
+	 *
+	 * @param body
+	 *            The stream to write to.
+	 * @param action
+	 *            The action to write.
+	 * @throws IOException
+	 *             If the action cannot be written.
+	 */
+	private void writeAction(DataOutputStream body, Action action) throws IOException {
+		int opcode;
+		if (action instanceof MessageAction) {
+			opcode = BinaryLevelLoader.MESSAGE;
+		} else if (action instanceof LadderAction) {
+			opcode = BinaryLevelLoader.LADDER;
+		} else if (action instanceof TeleporterAction) {
+			opcode = BinaryLevelLoader.TELEPORTER;
+		} else if (action instanceof EndingAction) {
+			opcode = BinaryLevelLoader.ENDING;
+		} else if (action instanceof SetterAction) {
+			opcode = BinaryLevelLoader.SETTER;
+		} else {
+			throw new IllegalArgumentException("There is no opcode for " + action);
+		}
+		
+		// The opcode is marked when a condition follows it.
+		if (action.condition == null) {
+			body.writeByte(opcode);
+		} else {
+			body.writeByte(opcode | BinaryLevelLoader.CONDITIONAL);
+			writeExpression(body, action.condition);
+		}
+		
+		if (action instanceof MessageAction) {
+			writeVarInt(body, string(((MessageAction) action).message));
+		} else if (action instanceof LadderAction) {
+			writeCoordinate(body, ((LadderAction) action).floor);
+		} else if (action instanceof TeleporterAction) {
+			TeleporterAction teleporter = (TeleporterAction) action;
+			writeCoordinate(body, teleporter.rx);
+			writeCoordinate(body, teleporter.ry);
+			writeCoordinate(body, teleporter.x);
+			writeCoordinate(body, teleporter.y);
+		} else if (action instanceof SetterAction) {
+			writeVarInt(body, string(((SetterAction) action).keyText));
+			writeExpression(body, ((SetterAction) action).value);
+		}
+	}
+	
+	/**
+	 * Writes a compiled expression, each part as its opcode followed by its
+	 * operands.
+	 *
+	 * @param body
+	 *            The stream to write to.
+	 * @param expression
+	 *            The expression to write.
+	 * @throws IOException
+	 *             If the expression cannot be written.
+	 */
+	private void writeExpression(DataOutputStream body, BooleanEvaluator.Expression expression) throws IOException {
+		if (expression == BooleanEvaluator.TRUE) {
+			body.writeByte(BinaryLevelLoader.TRUE);
+		} else if (expression == BooleanEvaluator.FALSE) {
+			body.writeByte(BinaryLevelLoader.FALSE);
+		} else if (expression instanceof BooleanEvaluator.Key) {
+			body.writeByte(BinaryLevelLoader.KEY);
+			writeVarInt(body, string(((BooleanEvaluator.Key) expression).name));
+		} else if (expression instanceof BooleanEvaluator.Not) {
+			body.writeByte(BinaryLevelLoader.NOT);
+			writeExpression(body, ((BooleanEvaluator.Not) expression).operand);
+		} else if (expression instanceof BooleanEvaluator.And) {
+			body.writeByte(BinaryLevelLoader.AND);
+			writeOperands(body, ((BooleanEvaluator.And) expression).operands);
+		} else if (expression instanceof BooleanEvaluator.Or) {
+			body.writeByte(BinaryLevelLoader.OR);
+			writeOperands(body, ((BooleanEvaluator.Or) expression).operands);
+		} else {
+			throw new IllegalArgumentException("There is no opcode for " + expression);
+		}
+	}
+	
+	/**
+	 * Writes the operands of an "AND" or "OR" gate.
+	 *
+	 * @param body
+	 *            The stream to write to.
+	 * @param operands
+	 *            The operands to write.
+	 * @throws IOException
+	 *             If the operands cannot be written.
+	 */
+	private void writeOperands(DataOutputStream body, BooleanEvaluator.Expression[] operands) throws IOException {
+		writeVarInt(body, operands.length);
+		for (BooleanEvaluator.Expression operand : operands) {
+			writeExpression(body, operand);
+		}
+	}
+	
+	/**
+	 * Writes a coordinate.
+	 *
+	 * @param body
+	 *            The stream to write to.
+	 * @param coordinate
+	 *            The coordinate to write.
+	 * @throws IOException
+	 *             If the coordinate cannot be written.
+	 */
+	private static void writeCoordinate(DataOutputStream body, Coordinate coordinate) throws IOException {
+		body.writeBoolean(coordinate.relative);
+		writeSignedVarInt(body, coordinate.value);
+	}
+	
+	/**
+	 * Writes a run of characters, one byte each, as their indexes in the
+	 * palette.
+	 *
+	 * @param body
+	 *            The stream to write to.
+	 * @param chars
+	 *            The characters to write.
+	 * @throws IOException
+	 *             If the characters cannot be written.
+	 * @throws IllegalArgumentException
+	 *             If the level uses too many different characters.
+	 */
+	private void writeChars(DataOutputStream body, char[] chars) throws IOException, IllegalArgumentException {
+		for (char c : chars) {
+			body.writeByte(paletteIndex(c));
+		}
+	}
+	
+	/**
+	 * Writes a number that is never negative in as few bytes as it fits in,
+	 * seven bits at a time starting with the lowest. Every byte but the last
+	 * has its highest bit set.
+	 *
+	 * @param out
+	 *            The stream to write to.
+	 * @param value
+	 *            The number, which must not be negative.
+	 * @throws IOException
+	 *             If the number cannot be written.
+	 */
+	static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+	
+	/**
+	 * Writes a number that may be negative in as few bytes as it fits in. It is
+	 * folded so that numbers close to zero on either side stay small, then
+	 * written with {@link #writeVarInt(DataOutputStream, int)}.
+	 *
+	 * @param out
+	 *            The stream to write to.
+	 * @param value
+	 *            The number.
+	 * @throws IOException
+	 *             If the number cannot be written.
+	 */
+	static void writeSignedVarInt(DataOutputStream out, int value) throws IOException {
+		writeVarInt(out, value << 1 ^ value >> 31);
+	}
+	
+	/**
+	 * Gets the index of a string in the string table, adding it if it is not in
+	 * there yet.
+	 *
+	 * @param string
+	 *            The string.
+	 * @return The index of the string.
+	 */
+	private int string(String string) {
+		Integer index = strings.get(string);
+		if (index == null) {
+			index = strings.size();
+			strings.put(string, index);
+		}
+		return index;
+	}
+	
+	/**
+	 * Gets the index of a character in the palette, adding it if it is not in
+	 * there yet.
+	 *
+	 * @param c
+	 *            The character.
+	 * @return The index of the character.
+	 * @throws IllegalArgumentException
+	 *             If the palette is full.
+	 */
+	private int paletteIndex(char c) throws IllegalArgumentException {
+		Integer index = palette.get(c);
+		if (index == null) {
+			if (palette.size() == BinaryLevelLoader.PALETTE_SIZE) {
+				throw new IllegalArgumentException("The level uses more than " + BinaryLevelLoader.PALETTE_SIZE + " different characters");
+			}
+			index = palette.size();
+			palette.put(c, index);
+		}
+		return index;
+	}
+}
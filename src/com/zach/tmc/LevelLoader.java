@@ -0,0 +1,166 @@
+package com.zach.tmc;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * The <code>LevelLoader</code> class reads the level of a {@link Game}. Levels
+ * can either be written in XML, which is read by an {@link XmlLevelLoader}, or
+ * compiled ahead of time by the {@link LevelCompiler}, which is read by a
+ * {@link BinaryLevelLoader}. Compiled levels can also be put together into a
+ * {@link LevelPack}. {@link #forLevel(String)} picks the right one by looking
+ * at the path and the start of the level.
+ *
+ * @author Zach K
+ */
+public abstract class LevelLoader {
+	/** The path to the level. Paths that start with "/" are resources inside the program, if there is such a resource. */
+	public final String levelPath;
+	/** Gives every key in the level an ID. It is filled in as the level is read. */
+	public final KeyTable keyTable = new KeyTable();
+	
+	/** The title of the level, read by {@link #readHeader()}. */
+	public String title;
+	/** The description of the level, read by {@link #readHeader()}. It has not been decoded yet. */
+	public String description;
+	/** The end message of the level, read by {@link #readHeader()}. */
+	public String message;
+	/** The version of the level, read by {@link #readHeader()}. Empty if the level does not have one. */
+	public String version;
+	
+	/**
+	 * Constructs a <code>LevelLoader</code> for a level.
+	 *
+	 * @param levelPath
+	 *            The path to the level. Paths that start with "/" are resources
+	 *            inside the program.
+	 */
+	protected LevelLoader(String levelPath) {
+		this.levelPath = levelPath;
+	}
+	
+	/**
+	 * Creates the right <code>LevelLoader</code> for a level, depending on whether
+	 * it is a compiled level or not.
+	 *
+	 * @param levelPath
+	 *            The path to the level. Paths that start with "/" are resources
+	 *            inside the program.
+	 * @return The <code>LevelLoader</code> for the level.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws IllegalArgumentException
+	 *             If the level is in a {@link LevelPack} that cannot be read or
+	 *             does not have the level.
+	 */
+	public static LevelLoader forLevel(String levelPath) throws IOException, IllegalArgumentException {
+		if (LevelPack.isPackedLevel(levelPath)) {
+			return LevelPack.openLevel(levelPath);
+		}
+		
+		InputStream stream = new BufferedInputStream(open(levelPath));
+		try {
+			// Compiled levels start with a magic number that XML never starts with.
+			int magic = 0;
+			for (int i = 0; i < 4; i++) {
+				int b = stream.read();
+				if (b < 0) {
+					break;
+				}
+				magic = magic << 8 | b;
+			}
+			if (magic == BinaryLevelLoader.MAGIC) {
+				return new BinaryLevelLoader(levelPath);
+			}
+			return new XmlLevelLoader(levelPath);
+		} finally {
+			stream.close();
+		}
+	}
+	
+	/**
+	 * Reads the title, description, message, and version of the level.
+	 *
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is written in XML that is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the level is not a valid level.
+	 */
+	public abstract void readHeader() throws IOException, XMLStreamException, IllegalArgumentException;
+	
+	/**
+	 * Reads a floor of the level. Only the map of the floor is built; its
+	 * {@link Room}s are built as they are needed.
+	 *
+	 * @param floorNumber
+	 *            The number of the floor to read.
+	 * @return The floor that was read.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is written in XML that is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the floor does not exist or cannot be created with the data
+	 *             given, for a wide variety of reasons.
+	 */
+	public abstract Floor loadFloor(int floorNumber) throws IOException, XMLStreamException, IllegalArgumentException;
+	
+	/**
+	 * Closes this <code>LevelLoader</code>, handing back anything it holds open.
+	 * Nothing is held open by default.
+	 */
+	public void close() {
+	}
+	
+	/**
+	 * Opens a level as a stream.
+	 *
+	 * @param levelPath
+	 *            The path to the level. Paths that start with "/" are resources
+	 *            inside the program, unless there is no such resource, in which
+	 *            case they are files.
+	 * @return The stream of the level.
+	 * @throws FileNotFoundException
+	 *             If the level does not exist.
+	 */
+	static InputStream open(String levelPath) throws FileNotFoundException {
+		if (levelPath.startsWith("/")) {
+			InputStream stream = Game.class.getResourceAsStream(levelPath);
+			if (stream != null) {
+				return stream;
+			}
+		}
+		return new FileInputStream(levelPath);
+	}
+	
+	/**
+	 * Reads all of a stream and closes it.
+	 *
+	 * @param stream
+	 *            The stream to read.
+	 * @return All of the bytes in the stream.
+	 * @throws IOException
+	 *             If the stream cannot be read.
+	 */
+	static byte[] readAll(InputStream stream) throws IOException {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(stream.available(), 4096));
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = stream.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.toByteArray();
+		} finally {
+			stream.close();
+		}
+	}
+}
@@ -0,0 +1,307 @@
+package com.zach.tmc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The <code>LevelPack</code> class is a single file holding many compiled
+ * levels. The file is mapped into memory rather than read, so opening a level
+ * in it only looks up where the level starts, and only the floors and rooms a
+ * {@link Game} actually reaches are ever read from the disk. Every
+ * {@link Game} playing a level from the same pack shares the same mapping, and
+ * once the last of them is done with it the pack is closed, so a pack that was
+ * written again is mapped again the next time it is opened.
+ * A level in a pack is referred to by the path of the pack and the name of the
+ * level, separated by {@link #SEPARATOR}, such as
+ * <code>levels.tmcp!level-1</code>. This is the layout of a pack (all numbers
+ * are big-endian):
+ * <table border="1" cellpadding="2">
+ *   <caption>Level Pack Layout</caption>
+ *   <tr>
+ *     <th>Part</th>
+ *     <th>Contents</th>
+ *   </tr>
+ *   <tr>
+ *     <td><b>header</b></td>
+ *     <td>int {@link #MAGIC}, short {@link #FORMAT_VERSION}</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>level index</b></td>
+ *     <td>int count, then for each level an int name length, the chars of its
+ *     name, a long offset, and an int length</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>levels</b></td>
+ *     <td>each level, compiled as described in {@link BinaryLevelLoader}</td>
+ *   </tr>
+ * </table>
+ *
+ * @author Zach K
+ */
+public class LevelPack {
+	/** The number every level pack starts with ("TMCP"). */
+	public static final int MAGIC = 0x544D4350;
+	/** The version of the level pack format. */
+	public static final int FORMAT_VERSION = 1;
+	/** The file extension of level packs. */
+	public static final String EXTENSION = ".tmcp";
+	/** The character between the path of a pack and the name of a level in it. */
+	public static final char SEPARATOR = '!';
+	
+	/** The packs that have been opened, by their path, so that each is only mapped once. */
+	private static final Map<String, LevelPack> openPacks = new HashMap<String, LevelPack>();
+	
+	/** The path to this <code>LevelPack</code>. */
+	public final String packPath;
+	/** The key of this <code>LevelPack</code> in the {@link #openPacks}. */
+	private final String key;
+	/** The mapping of the whole pack. */
+	private final ByteBuffer data;
+	/** The levels in this <code>LevelPack</code>, by name, as the offset and length of each. */
+	private final Map<String, int[]> levels = new LinkedHashMap<String, int[]>();
+	
+	/** The amount of times this <code>LevelPack</code> has been opened and not closed yet. */
+	private int users;
+	
+	/**
+	 * Maps a <code>LevelPack</code> and reads its level index.
+	 *
+	 * @param packPath
+	 *            The path to the pack.
+	 * @param key
+	 *            The key of the pack in the {@link #openPacks}.
+	 * @throws IOException
+	 *             If the pack cannot be opened or mapped.
+	 * @throws IllegalArgumentException
+	 *             If the file is not a level pack this program can read.
+	 */
+	private LevelPack(String packPath, String key) throws IOException, IllegalArgumentException {
+		this.packPath = packPath;
+		this.key = key;
+		
+		// Map the whole pack.
+		data = BinaryLevelLoader.map(packPath);
+		
+		ByteBuffer index = data.duplicate();
+		if (index.remaining() < 10 || index.getInt() != MAGIC) {
+			throw new IllegalArgumentException("\"" + packPath + "\" is not a level pack");
+		}
+		int formatVersion = index.getShort();
+		if (formatVersion != FORMAT_VERSION) {
+			throw new IllegalArgumentException("The level pack is format version " + formatVersion
+					+ ", but only version " + FORMAT_VERSION + " can be read");
+		}
+		
+		try {
+			readIndex(index);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("The level pack \"" + packPath + "\" is corrupted", e);
+		}
+	}
+	
+	/**
+	 * Reads the level index of this <code>LevelPack</code>.
+	 *
+	 * @param index
+	 *            The pack, just after its header.
+	 * @throws IllegalArgumentException
+	 *             If a level or its name is outside of the pack.
+	 */
+	private void readIndex(ByteBuffer index) throws IllegalArgumentException {
+		// Read the level index.
+		int levelCount = index.getInt();
+		for (int i = 0; i < levelCount; i++) {
+			int nameLength = index.getInt();
+			if (nameLength < 0 || nameLength > index.remaining() / 2) {
+				throw new IllegalArgumentException("The level pack \"" + packPath + "\" is corrupted");
+			}
+			char[] name = new char[nameLength];
+			for (int j = 0; j < name.length; j++) {
+				name[j] = index.getChar();
+			}
+			
+			// The mapping is never larger than an int can count, so a level inside of it always fits in one.
+			long offset = index.getLong();
+			long length = index.getInt();
+			if (offset < 0 || length < 0 || offset > data.capacity() - length) {
+				throw new IllegalArgumentException("Level \"" + new String(name) + "\" is outside of the level pack");
+			}
+			levels.put(new String(name), new int[] { (int) offset, (int) length });
+		}
+	}
+	
+	/**
+	 * Opens a <code>LevelPack</code>, or gets it if it has already been opened.
+	 * Every call must be matched by a call to {@link #close()}.
+	 *
+	 * @param packPath
+	 *            The path to the pack.
+	 * @return The <code>LevelPack</code>.
+	 * @throws IOException
+	 *             If the pack cannot be opened or mapped.
+	 * @throws IllegalArgumentException
+	 *             If the file is not a level pack this program can read.
+	 */
+	public static LevelPack open(String packPath) throws IOException, IllegalArgumentException {
+		String key = new File(packPath).getCanonicalPath();
+		synchronized (openPacks) {
+			LevelPack pack = openPacks.get(key);
+			if (pack == null) {
+				pack = new LevelPack(packPath, key);
+				openPacks.put(key, pack);
+			}
+			pack.users++;
+			return pack;
+		}
+	}
+	
+	/**
+	 * Closes this <code>LevelPack</code>. Once everything that opened it has
+	 * closed it, it is dropped, and the pack is mapped again the next time it is
+	 * opened.
+	 */
+	public void close() {
+		synchronized (openPacks) {
+			if (users > 0 && --users == 0 && openPacks.get(key) == this) {
+				openPacks.remove(key);
+			}
+		}
+	}
+	
+	/**
+	 * Checks if a level path refers to a level inside a pack.
+	 *
+	 * @param levelPath
+	 *            The path to the level.
+	 * @return True if the path is the path of a pack and the name of a level,
+	 *         false otherwise.
+	 */
+	public static boolean isPackedLevel(String levelPath) {
+		int separator = levelPath.lastIndexOf(SEPARATOR);
+		return separator > 0 && levelPath.substring(0, separator).endsWith(EXTENSION);
+	}
+	
+	/**
+	 * Opens a level inside a pack. The pack stays open until the
+	 * {@link BinaryLevelLoader} is closed.
+	 *
+	 * @param levelPath
+	 *            The path of the pack and the name of the level, separated by
+	 *            {@link #SEPARATOR}.
+	 * @return The {@link BinaryLevelLoader} for the level.
+	 * @throws IOException
+	 *             If the pack cannot be opened or mapped.
+	 * @throws IllegalArgumentException
+	 *             If the pack cannot be read or does not have the level.
+	 */
+	public static BinaryLevelLoader openLevel(String levelPath) throws IOException, IllegalArgumentException {
+		int separator = levelPath.lastIndexOf(SEPARATOR);
+		LevelPack pack = open(levelPath.substring(0, separator));
+		try {
+			return new BinaryLevelLoader(levelPath, pack.getLevel(levelPath.substring(separator + 1)), pack);
+		} catch (IllegalArgumentException e) {
+			pack.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Gets the names of the levels in this <code>LevelPack</code>, in the order
+	 * they were packed.
+	 *
+	 * @return The names of the levels.
+	 */
+	public Set<String> getLevelNames() {
+		return Collections.unmodifiableSet(levels.keySet());
+	}
+	
+	/**
+	 * Gets a level in this <code>LevelPack</code>. Nothing is read until the level
+	 * is used.
+	 *
+	 * @param name
+	 *            The name of the level.
+	 * @return The level, as a view of the mapping that starts at the start of the
+	 *         level.
+	 * @throws IllegalArgumentException
+	 *             If there is no level with that name.
+	 */
+	public ByteBuffer getLevel(String name) throws IllegalArgumentException {
+		int[] level = levels.get(name);
+		if (level == null) {
+			throw new IllegalArgumentException("There is no level \"" + name + "\" in \"" + packPath + "\"");
+		}
+		ByteBuffer view = data.duplicate();
+		view.position(level[0]);
+		view.limit(level[0] + level[1]);
+		return view.slice();
+	}
+	
+	/**
+	 * Writes a level pack. It is written with
+	 * {@link SaveFile#writeAtomically(String, ByteBuffer)}, so a pack that is
+	 * being played is never changed under the {@link Game}s playing it.
+	 *
+	 * @param packPath
+	 *            The path to write the pack to. The file is replaced if it
+	 *            exists.
+	 * @param levels
+	 *            The compiled levels to pack, by name, in the order they should
+	 *            be packed.
+	 * @throws IOException
+	 *             If the pack cannot be written.
+	 * @throws IllegalArgumentException
+	 *             If a name contains the {@link #SEPARATOR}, or the pack would
+	 *             be too large to be mapped.
+	 */
+	public static void write(String packPath, Map<String, byte[]> levels) throws IOException, IllegalArgumentException {
+		// Work out where the first level starts.
+		long offset = 4 + 2 + 4;
+		for (String name : levels.keySet()) {
+			if (name.indexOf(SEPARATOR) != -1) {
+				throw new IllegalArgumentException("Level names cannot contain '" + SEPARATOR + "': \"" + name + "\"");
+			}
+			offset += 4 + name.length() * 2 + 8 + 4;
+		}
+		long size = offset;
+		for (byte[] level : levels.values()) {
+			size += level.length;
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The level pack would be too large to be mapped");
+		}
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) size);
+		DataOutputStream pack = new DataOutputStream(bytes);
+		try {
+			// Write the header and level index.
+			pack.writeInt(MAGIC);
+			pack.writeShort(FORMAT_VERSION);
+			pack.writeInt(levels.size());
+			for (Map.Entry<String, byte[]> level : levels.entrySet()) {
+				pack.writeInt(level.getKey().length());
+				pack.writeChars(level.getKey());
+				pack.writeLong(offset);
+				pack.writeInt(level.getValue().length);
+				offset += level.getValue().length;
+			}
+			
+			// Write the levels.
+			for (byte[] level : levels.values()) {
+				pack.write(level);
+			}
+		} finally {
+			pack.close();
+		}
+		SaveFile.writeAtomically(packPath, ByteBuffer.wrap(bytes.toByteArray()));
+	}
+}
@@ -0,0 +1,32 @@
+package com.zach.tmc;
+
+/**
+ * The <code>MessageAction</code> class is an {@link Action} that displays a
+ * message.
+ *
+ * @author Zach K
+ */
+class MessageAction extends Action {
+	/** The decoded message to display. */
+	final String message;
+	
+	MessageAction(String condition, KeyTable keyTable, String message) throws IllegalArgumentException {
+		super(condition, keyTable);
+		this.message = message;
+	}
+	
+	MessageAction(BooleanEvaluator.Expression condition, String message) {
+		super(condition);
+		this.message = message;
+	}
+	
+	@Override
+	void perform(Game game) {
+		game.listener.showMessage(game, null, message);
+	}
+	
+	@Override
+	String getAttributes() {
+		return "type=message,message=\"" + message + "\"";
+	}
+}
@@ -11,6 +11,7 @@ import javax.swing.JRadioButton;
 import javax.swing.ButtonGroup;
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
 
 /**
  * The <code>NewLevelFrame</code> class is used by the {@link Launcher} to
@@ -113,8 +114,16 @@ public class NewLevelFrame extends JFrame implements ActionListener {
 			fileChooser.setFileFilter(new XMLFileFilter());
 			fileChooser.setAcceptAllFileFilterUsed(false);
 			int returnValue = fileChooser.showOpenDialog(null);
+			String selectedPath = null;
 			if (returnValue == JFileChooser.APPROVE_OPTION) {
-				filePath.replace(0, filePath.length(), fileChooser.getSelectedFile().getPath());
+				selectedPath = fileChooser.getSelectedFile().getPath();
+				if (selectedPath.endsWith(LevelPack.EXTENSION)) {
+					// In the case that a level pack is selected, ask which level in it to play.
+					selectedPath = choosePackedLevel(selectedPath);
+				}
+			}
+			if (selectedPath != null) {
+				filePath.replace(0, filePath.length(), selectedPath);
 			} else {
 				// If the dialog is closed, the last clicked button will be reselected.
 				if (filePath.charAt(0) == '/') {
@@ -135,10 +144,42 @@ public class NewLevelFrame extends JFrame implements ActionListener {
 			 * of Game will be created on a separate thread and the NewLevelFrame will be
 			 * disposed.
 			 */ 
-			Game game = new Game(launcher, filePath.toString());
-			new Thread(game).start();
+			GameFrame.play(launcher, filePath.toString());
 			dispose();
 		}
 	}
+	
+	/**
+	 * Asks which level in a {@link LevelPack} to play.
+	 * 
+	 * @param packPath
+	 *            The path to the level pack.
+	 * @return The path to the chosen level in the pack, or <code>null</code> if
+	 *         no level was chosen.
+	 */
+	private String choosePackedLevel(String packPath) {
+		try {
+			LevelPack pack = LevelPack.open(packPath);
+			Object[] names;
+			try {
+				names = pack.getLevelNames().toArray();
+			} finally {
+				pack.close();
+			}
+			if (names.length == 0) {
+				JOptionPane.showMessageDialog(null, "There are no levels in that level pack.");
+				return null;
+			}
+			Object name = JOptionPane.showInputDialog(null, "Which level would you like to play?", "Level Pack",
+					JOptionPane.PLAIN_MESSAGE, null, names, names[0]);
+			if (name == null) {
+				return null;
+			}
+			return packPath + LevelPack.SEPARATOR + name;
+		} catch (Exception e) {
+			JOptionPane.showMessageDialog(null, "There was an error reading that level pack.\nError: " + e.toString());
+			return null;
+		}
+	}
 
 }
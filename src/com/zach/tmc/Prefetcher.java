@@ -0,0 +1,165 @@
+package com.zach.tmc;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The <code>Prefetcher</code> class builds the parts of a level the player is
+ * likely to need next on a background thread, so that the {@link Game} does
+ * not have to stop and read them when they are needed. Whenever the player
+ * enters a room, the rooms next to it in the map are built, and the floors its
+ * ladders lead to are loaded into the {@link Game#level}, along with the room
+ * the player lands in on each of them. Since both are shared, any other
+ * {@link Game} playing the same level benefits as well. Floors loaded ahead of
+ * time never push out a floor a {@link Game} is on. Every
+ * <code>Prefetcher</code> shares a single background thread, so playing many
+ * {@link Game}s at once does not start a thread for each of them.
+ *
+ * @author Zach K
+ */
+public class Prefetcher {
+	/** The amount of reads that can be waiting at once. Once there are too many, the oldest one is dropped. */
+	public static final int QUEUE_CAPACITY = 64;
+	
+	/** The background thread the reading is done on, shared by every <code>Prefetcher</code>. */
+	private static final ExecutorService executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "TMC Prefetcher");
+					// The prefetcher should never keep the program open by itself.
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			}, new ThreadPoolExecutor.DiscardOldestPolicy());
+	
+	/** The {@link Game} this <code>Prefetcher</code> reads ahead for. */
+	private final Game game;
+	/** Whether or not this <code>Prefetcher</code> has been shut down. */
+	private volatile boolean shutDown = false;
+	
+	/**
+	 * Constructs a <code>Prefetcher</code> for a {@link Game}.
+	 *
+	 * @param game
+	 *            The {@link Game} to read ahead for.
+	 */
+	public Prefetcher(Game game) {
+		this.game = game;
+	}
+	
+	/**
+	 * Reads ahead for the room the player is in. Everything about the room is
+	 * looked at on the calling thread, which must be the thread the
+	 * {@link Game} runs on; only the building is done in the background.
+	 */
+	public void prefetchAround() {
+		final Floor floor = game.currentFloor;
+		char[][] map = game.map;
+		
+		// Find the rooms on each side of the player's room, wrapping around the map like the game does.
+		final ArrayList<Character> rooms = new ArrayList<Character>(4);
+		int[][] offsets = { { -1, 0 }, { 0, -1 }, { 1, 0 }, { 0, 1 } };
+		for (int[] offset : offsets) {
+			int ry = Math.floorMod(game.ry + offset[1], map.length);
+			if (map[ry].length == 0) {
+				continue;
+			}
+			int rx = Math.floorMod(game.rx + offset[0], map[ry].length);
+			
+			char reference = map[ry][rx];
+			if (Character.isLetter(reference) && !floor.definitions.containsKey(reference)) {
+				rooms.add(reference);
+			}
+		}
+		
+		// Find the floors the ladders in the player's room lead to, unless they and the rooms the player lands in are ready.
+		final ArrayList<Integer> floors = new ArrayList<Integer>(1);
+		if (game.room != null) {
+			for (RoomObject object : game.room.objects) {
+				if (object instanceof Button) {
+					for (Action action : ((Button) object).actions) {
+						if (action instanceof LadderAction) {
+							int floorNumber = ((LadderAction) action).floor.resolve(game.floorNumber);
+							if (floorNumber != game.floorNumber && !floors.contains(floorNumber)) {
+								Floor target = game.level.floors.get(floorNumber);
+								if (target == null || getLandingRoom(target) != 0 && !target.definitions.containsKey(getLandingRoom(target))) {
+									floors.add(floorNumber);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		
+		if (rooms.isEmpty() && floors.isEmpty() || shutDown) {
+			return;
+		}
+		
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					// Any problem is left for the game to find and report when it actually gets there.
+					for (char reference : rooms) {
+						if (shutDown) {
+							return;
+						}
+						try {
+							floor.getDefinition(reference);
+						} catch (Exception e) {
+						}
+					}
+					for (int floorNumber : floors) {
+						if (shutDown) {
+							return;
+						}
+						try {
+							Floor target = game.level.getFloor(floorNumber);
+							char reference = getLandingRoom(target);
+							if (reference != 0) {
+								target.getDefinition(reference);
+							}
+						} catch (Exception e) {
+						}
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// The background thread is no longer taking reads, so there is nothing to do.
+		}
+	}
+	
+	/**
+	 * Gets the room the player lands in when a ladder takes them to a floor.
+	 *
+	 * @param floor
+	 *            The floor the ladder leads to.
+	 * @return The reference character of the room, or 0 if the player does not
+	 *         land in a room on that floor.
+	 */
+	private static char getLandingRoom(Floor floor) {
+		if (!floor.hasPlayer || floor.playerRy < 0 || floor.playerRy >= floor.map.length || floor.playerRx < 0
+				|| floor.playerRx >= floor.map[floor.playerRy].length) {
+			return 0;
+		}
+		char reference = floor.map[floor.playerRy][floor.playerRx];
+		return Character.isLetter(reference) ? reference : 0;
+	}
+	
+	/**
+	 * Shuts down this <code>Prefetcher</code>, dropping anything it has not read
+	 * yet. The background thread keeps running for the other
+	 * <code>Prefetcher</code>s.
+	 */
+	public void shutdown() {
+		shutDown = true;
+	}
+}
@@ -0,0 +1,448 @@
+package com.zach.tmc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * The <code>ReplayRunner</code> class plays a level with a recorded list of
+ * inputs instead of a player, as fast as the {@link Game} can handle them, and
+ * reports where the player ended up. Since nothing is shown and nothing waits
+ * for the player, thousands of recorded playthroughs can be checked against a
+ * changed level in seconds. It is run from the command line with the path of
+ * the level and the paths of the input logs to replay:
+ *
+ * <pre>
+ * java com.zach.tmc.ReplayRunner src/levels/level-1.xml playthrough-1.txt playthrough-2.txt
+ * </pre>
+ *
+ * The input logs are replayed in parallel, one for each processor unless
+ * <code>-threads &lt;count&gt;</code> is given first, and how many replays
+ * ended in each state is shown at the end.
+ *
+ * An input log is a text file with one character for each input:
+ * <code>L</code>, <code>U</code>, <code>R</code>, and <code>D</code> for the
+ * directions and <code>A</code> for the action. Whitespace is ignored, and
+ * <code>#</code> starts a comment that lasts until the end of the line.
+ *
+ * @author Zach K
+ */
+public class ReplayRunner {
+	/** The character for each {@link Game.Input} in an input log, in the order of {@link #INPUTS}. */
+	private static final String INPUT_CHARACTERS = "LURDA";
+	/** The {@link Game.Input}s that can be written in an input log. */
+	private static final Game.Input[] INPUTS = { Game.Input.LEFT, Game.Input.UP, Game.Input.RIGHT, Game.Input.DOWN, Game.Input.ACTION };
+	
+	/**
+	 * The <code>Result</code> class holds where the player ended up after a
+	 * replay, and how long the replay took.
+	 *
+	 * @author Zach K
+	 */
+	public static class Result {
+		/** The floor the player ended on. */
+		public int floorNumber;
+		/** The x coordinate of the room the player ended in. */
+		public int rx;
+		/** The y coordinate of the room the player ended in. */
+		public int ry;
+		/** The x coordinate the player ended on. */
+		public int x;
+		/** The y coordinate the player ended on. */
+		public int y;
+		/** The names of the keys that were active at the end, in alphabetical order. */
+		public List<String> keys = new ArrayList<String>();
+		/** The amount of inputs that were handled. */
+		public int steps;
+		/** The time the inputs took to handle, in nanoseconds. */
+		public long time;
+		/** Whether or not the {@link Game} ended before the inputs ran out, usually because the level was beaten. */
+		public boolean ended;
+		/** The last message shown to the player, or <code>null</code> if there was none. */
+		public String message;
+		/** Why the replay could not be finished, or <code>null</code> if it was. */
+		public String error;
+		
+		/**
+		 * Gets the amount of inputs handled each second.
+		 *
+		 * @return The steps per second of the replay.
+		 */
+		public double getStepsPerSecond() {
+			return time == 0 ? 0 : steps * 1e9 / time;
+		}
+		
+		/**
+		 * Gets where the player ended up in String form. Two replays that end the
+		 * same way give the same String, no matter how long they took.
+		 *
+		 * @return The final state of the replay.
+		 */
+		public String getState() {
+			if (error != null) {
+				return "error=\"" + error + "\"";
+			}
+			return "floor=" + floorNumber + ",rx=" + rx + ",ry=" + ry + ",x=" + x + ",y=" + y + ",keys=" + keys + ",ended=" + ended;
+		}
+		
+		@Override
+		public String toString() {
+			return "Result[" + getState() + ",steps=" + steps + ",stepsPerSecond=" + Math.round(getStepsPerSecond()) + "]";
+		}
+	}
+	
+	/**
+	 * The <code>Batch</code> class holds the {@link Result}s of many replays of
+	 * the same level, and how long they took altogether.
+	 *
+	 * @author Zach K
+	 */
+	public static class Batch {
+		/** The {@link Result} of each replay, in the order the input logs were given. */
+		public final Result[] results;
+		/** The amount of inputs handled by every replay. */
+		public long steps;
+		/** The amount of replays that could not be finished. */
+		public int failures;
+		/** The time every replay took from start to finish, in nanoseconds. */
+		public long time;
+		
+		/**
+		 * Constructs an empty <code>Batch</code>.
+		 *
+		 * @param size
+		 *            The amount of replays.
+		 */
+		Batch(int size) {
+			results = new Result[size];
+		}
+		
+		/**
+		 * Gets the amount of inputs handled each second, by every replay together.
+		 *
+		 * @return The steps per second of the replays.
+		 */
+		public double getStepsPerSecond() {
+			return time == 0 ? 0 : steps * 1e9 / time;
+		}
+		
+		/**
+		 * Counts how many replays ended in each final state.
+		 *
+		 * @return The amount of replays with each {@link Result#getState()}, in
+		 *         alphabetical order.
+		 */
+		public Map<String, Integer> getOutcomes() {
+			Map<String, Integer> outcomes = new TreeMap<String, Integer>();
+			for (Result result : results) {
+				if (result != null) {
+					String state = result.getState();
+					Integer count = outcomes.get(state);
+					outcomes.put(state, count == null ? 1 : count + 1);
+				}
+			}
+			return outcomes;
+		}
+		
+		@Override
+		public String toString() {
+			return "Replayed " + results.length + " logs (" + failures + " failed) and " + steps + " steps in " + time / 1000000 + "ms at "
+					+ Math.round(getStepsPerSecond()) + " steps per second";
+		}
+	}
+	
+	/**
+	 * The <code>ReplayListener</code> class is the {@link GameListener} of a
+	 * {@link Game} being replayed. It remembers the last message shown, since
+	 * that is how a {@link Game} tells why it ended.
+	 *
+	 * @author Zach K
+	 */
+	private static class ReplayListener extends GameAdapter {
+		/** The last message shown, or <code>null</code> if there was none. */
+		String message;
+		
+		@Override
+		public void showMessage(Game game, String title, String message) {
+			this.message = message;
+		}
+	}
+	
+	/**
+	 * Replays each input log given on a level, in parallel.
+	 *
+	 * @param args
+	 *            The amount of threads to use, if given, then the path to the
+	 *            level, then the paths to the input logs.
+	 */
+	public static void main(String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int first = 0;
+		if (args.length > 1 && args[0].equals("-threads")) {
+			try {
+				threads = Integer.parseInt(args[1]);
+			} catch (NumberFormatException e) {
+				threads = 0;
+			}
+			first = 2;
+		}
+		if (args.length - first < 2 || threads < 1) {
+			System.err.println("Usage: java com.zach.tmc.ReplayRunner [-threads <count>] <level> <inputs.txt>...");
+			System.exit(2);
+		}
+		
+		String levelPath = args[first];
+		List<String> logPaths = Arrays.asList(args).subList(first + 1, args.length);
+		Batch batch;
+		try {
+			batch = replayAll(levelPath, logPaths, threads);
+		} catch (Exception e) {
+			System.err.println("Could not read \"" + levelPath + "\": " + e.toString());
+			System.exit(1);
+			return;
+		}
+		
+		// Show each replay, then how every replay ended.
+		for (int i = 0; i < batch.results.length; i++) {
+			System.out.println(logPaths.get(i) + ": " + batch.results[i]);
+		}
+		for (Map.Entry<String, Integer> outcome : batch.getOutcomes().entrySet()) {
+			System.out.println(outcome.getValue() + " x " + outcome.getKey());
+		}
+		System.out.println(batch);
+		if (batch.failures > 0) {
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Replays many input logs on a level in parallel. The level is read once
+	 * and shared by every replay, while each replay plays a {@link Game} of its
+	 * own. Each input log is only read when it is about to be replayed, so the
+	 * amount of input logs is not limited by memory.
+	 *
+	 * @param levelPath
+	 *            The path to the level.
+	 * @param logPaths
+	 *            The paths to the input logs.
+	 * @param threads
+	 *            The amount of replays to run at once.
+	 * @return The results of every replay.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is written in XML that is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the level is not a valid level.
+	 */
+	public static Batch replayAll(final String levelPath, final List<String> logPaths, int threads)
+			throws IOException, XMLStreamException, IllegalArgumentException {
+		final Batch batch = new Batch(logPaths.size());
+		final AtomicInteger next = new AtomicInteger();
+		
+		// Hold on to the level so it is only read once, instead of once for each replay.
+		Level level = Level.acquire(levelPath);
+		long start = System.nanoTime();
+		try {
+			// Each thread takes the next input log until there are none left.
+			Thread[] workers = new Thread[Math.max(1, Math.min(threads, logPaths.size()))];
+			for (int t = 0; t < workers.length; t++) {
+				workers[t] = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						for (int i = next.getAndIncrement(); i < logPaths.size(); i = next.getAndIncrement()) {
+							Result result;
+							try {
+								result = replay(levelPath, read(logPaths.get(i)));
+							} catch (Exception e) {
+								result = new Result();
+								result.error = e.toString();
+							}
+							batch.results[i] = result;
+						}
+					}
+				}, "TMC Replay " + (t + 1));
+				workers[t].start();
+			}
+			for (Thread worker : workers) {
+				try {
+					worker.join();
+				} catch (InterruptedException e) {
+					// Stop handing out input logs, but let the replays that were started finish.
+					next.set(logPaths.size());
+					Thread.currentThread().interrupt();
+				}
+			}
+		} finally {
+			level.release();
+		}
+		batch.time = System.nanoTime() - start;
+		
+		// Add up the results.
+		for (Result result : batch.results) {
+			if (result == null) {
+				continue;
+			}
+			batch.steps += result.steps;
+			if (result.error != null) {
+				batch.failures++;
+			}
+		}
+		return batch;
+	}
+	
+	/**
+	 * Reads an input log from a file.
+	 *
+	 * @param path
+	 *            The path to the input log.
+	 * @return The inputs in the log.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 * @throws IllegalArgumentException
+	 *             If the log has a character that is not an input.
+	 */
+	public static Game.Input[] read(String path) throws IOException, IllegalArgumentException {
+		return parse(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Parses an input log.
+	 *
+	 * @param log
+	 *            The text of the input log.
+	 * @return The inputs in the log.
+	 * @throws IllegalArgumentException
+	 *             If the log has a character that is not an input.
+	 */
+	public static Game.Input[] parse(CharSequence log) throws IllegalArgumentException {
+		List<Game.Input> inputs = new ArrayList<Game.Input>(log.length());
+		boolean comment = false;
+		for (int i = 0; i < log.length(); i++) {
+			char c = log.charAt(i);
+			if (comment) {
+				// Comments last until the end of the line.
+				comment = c != '\n';
+			} else if (c == '#') {
+				comment = true;
+			} else if (!Character.isWhitespace(c)) {
+				int index = INPUT_CHARACTERS.indexOf(Character.toUpperCase(c));
+				if (index == -1) {
+					throw new IllegalArgumentException("'" + c + "' at index " + i + " is not an input");
+				}
+				inputs.add(INPUTS[index]);
+			}
+		}
+		return inputs.toArray(new Game.Input[inputs.size()]);
+	}
+	
+	/**
+	 * Writes inputs as an input log, which {@link #parse(CharSequence)} reads
+	 * back. Inputs that cannot be written in an input log are left out.
+	 *
+	 * @param inputs
+	 *            The inputs to write.
+	 * @return The text of the input log.
+	 */
+	public static String format(List<Game.Input> inputs) {
+		StringBuilder log = new StringBuilder(inputs.size() + inputs.size() / 64 + 1);
+		for (Game.Input input : inputs) {
+			for (int i = 0; i < INPUTS.length; i++) {
+				if (INPUTS[i] == input) {
+					log.append(INPUT_CHARACTERS.charAt(i));
+					// Keep the lines short enough to read.
+					if (log.length() % 65 == 64) {
+						log.append('\n');
+					}
+				}
+			}
+		}
+		return log.toString();
+	}
+	
+	/**
+	 * Makes a list of random inputs, to replay on a level that has no recorded
+	 * playthroughs. The same {@link Random} seed always makes the same inputs.
+	 *
+	 * @param random
+	 *            The source of the inputs.
+	 * @param steps
+	 *            The amount of inputs to make.
+	 * @return The inputs.
+	 */
+	public static Game.Input[] random(Random random, int steps) {
+		Game.Input[] inputs = new Game.Input[steps];
+		for (int i = 0; i < inputs.length; i++) {
+			inputs[i] = INPUTS[random.nextInt(INPUTS.length)];
+		}
+		return inputs;
+	}
+	
+	/**
+	 * Replays inputs on a level from its start. The inputs are handled on the
+	 * calling thread, one after another, until they run out or the
+	 * {@link Game} ends. Questions the level asks, such as whether to play a
+	 * level from another version, are always agreed to.
+	 *
+	 * @param levelPath
+	 *            The path to the level.
+	 * @param inputs
+	 *            The inputs to replay.
+	 * @return Where the player ended up.
+	 */
+	public static Result replay(String levelPath, Game.Input[] inputs) {
+		ReplayListener listener = new ReplayListener();
+		Game game = new Game(levelPath, listener);
+		Result result = new Result();
+		
+		try {
+			if (!game.start()) {
+				result.error = listener.message == null ? "The level could not be started" : listener.message;
+				return result;
+			}
+			
+			// Handle every input, timing only the inputs themselves.
+			long start = System.nanoTime();
+			try {
+				for (Game.Input input : inputs) {
+					if (!game.gameRunning) {
+						break;
+					}
+					game.step(input);
+					result.steps++;
+				}
+			} catch (Exception e) {
+				result.error = "Step " + result.steps + ": " + e.toString();
+			}
+			result.time = System.nanoTime() - start;
+			
+			// Collect where the player ended up.
+			result.floorNumber = game.floorNumber;
+			result.rx = game.rx;
+			result.ry = game.ry;
+			result.x = game.x;
+			result.y = game.y;
+			for (int id = game.keys.nextSetBit(0); id >= 0; id = game.keys.nextSetBit(id + 1)) {
+				result.keys.add(game.keyTable.getName(id));
+			}
+			// The IDs of keys depend on the order the rooms were read in, but their names do not.
+			Collections.sort(result.keys);
+			result.ended = !game.gameRunning;
+			result.message = listener.message;
+			return result;
+		} finally {
+			game.end();
+		}
+	}
+}
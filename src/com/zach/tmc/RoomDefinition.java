@@ -0,0 +1,283 @@
+package com.zach.tmc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The <code>RoomDefinition</code> class holds everything about a room that
+ * comes from the level: its map, its transporters and transmitters, and its
+ * objects with their compiled actions. It is filled in by the
+ * {@link LevelLoader} that reads it and is never changed after that, so a
+ * single <code>RoomDefinition</code> is shared by every {@link Game} playing
+ * the level. What changes as a {@link Game} is played is kept in a
+ * {@link Room} of its own instead.
+ *
+ * @author Zach K
+ */
+public class RoomDefinition {
+	/** The character in the {@link Floor#map} linked to this <code>RoomDefinition</code>. */
+	public final char reference;
+	
+	/** The text of this <code>RoomDefinition</code> without objects. */
+	char[][] map;
+	/** The text of this <code>RoomDefinition</code> with the pieces of its objects on top of the {@link #map}. */
+	char[][] display;
+	
+	/** Houses the {@link Transporter}s in this room. */
+	public final Map<Game.Direction, Transporter> transporters = new HashMap<>();
+	/** Houses the transmitters ({@link Transporter}) in this room. */
+	public final Map<Game.Direction, Transporter> transmitters = new HashMap<>();
+	/** Houses the objects in this room, indexed by <code>y * Game.ROOM_WIDTH + x</code>. */
+	public final RoomObject[] objects = new RoomObject[Game.ROOM_WIDTH * Game.ROOM_HEIGHT];
+	
+	/**
+	 * Constructs a new, empty <code>RoomDefinition</code>. Its map and objects
+	 * are filled in by the {@link LevelLoader} that reads it.
+	 *
+	 * @param reference
+	 *            The character in the {@link Floor#map} linked to this
+	 *            <code>RoomDefinition</code>.
+	 */
+	RoomDefinition(char reference) {
+		this.reference = reference;
+	}
+	
+	/**
+	 * Constructs a new <code>RoomDefinition</code> from a level being read.
+	 *
+	 * @param reader
+	 *            The reader of the level, at the start of the room's element. It
+	 *            is left at the end of the room's element.
+	 * @param reference
+	 *            The character in the {@link Floor#map} linked to this
+	 *            <code>RoomDefinition</code>.
+	 * @param keyTable
+	 *            The {@link KeyTable} of the level, to look up keys with.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             When the room cannot be created with the data given, for a wide
+	 *             variety of reasons.
+	 */
+	public RoomDefinition(XMLStreamReader reader, char reference, KeyTable keyTable) throws XMLStreamException, IllegalArgumentException {
+		this(reference);
+		load(reader, keyTable);
+	}
+	
+	/**
+	 * Loads the room and its data from a level being read.
+	 *
+	 * @param reader
+	 *            The reader of the level, at the start of the room's element. It
+	 *            is left at the end of the room's element.
+	 * @param keyTable
+	 *            The {@link KeyTable} of the level, to look up keys with.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             When the room cannot be created with the data given, for a wide
+	 *             variety of reasons.
+	 */
+	private void load(XMLStreamReader reader, KeyTable keyTable) throws XMLStreamException, IllegalArgumentException {
+		String[] roomText = null;
+		
+		// Load each of the room's elements in the order they are written, however deeply they are nested.
+		int depth = 0;
+		while (true) {
+			if (!XmlLevelLoader.nextChild(reader)) {
+				// Either an element around some of the room's elements ended, or the room itself did.
+				if (depth == 0) {
+					break;
+				}
+				depth--;
+				continue;
+			}
+			switch (reader.getLocalName()) {
+			case "map":
+				// Load the map of the room.
+				if (roomText == null) {
+					roomText = reader.getElementText().trim().split("\n");
+				} else {
+					XmlLevelLoader.skipElement(reader);
+				}
+				break;
+			case "transporter":
+				// Load a transporter.
+				loadTransporter(reader, transporters, "transporters");
+				break;
+			case "transmitter":
+				// Load a transmitter.
+				loadTransporter(reader, transmitters, "transmitters");
+				break;
+			case "button":
+				// Load a button. The button reads its own actions.
+				char buttonPiece = XmlLevelLoader.getAttribute(reader, "piece").charAt(0);
+				String buttonNotify = XmlLevelLoader.getAttribute(reader, "notify");
+				String buttonInstant = XmlLevelLoader.getAttribute(reader, "instant");
+				int buttonX = Integer.parseInt(XmlLevelLoader.getAttribute(reader, "x"));
+				int buttonY = Integer.parseInt(XmlLevelLoader.getAttribute(reader, "y"));
+				
+				Button objectButton = new Button(buttonPiece, reader, keyTable);
+				objectButton.setAttributes("", buttonNotify, buttonInstant);
+				
+				putObject(objectButton, buttonX, buttonY);
+				break;
+			case "block":
+				// Load a block.
+				char blockPiece = XmlLevelLoader.getAttribute(reader, "piece").charAt(0);
+				
+				Block objectBlock = new Block(blockPiece);
+				
+				String blockCollidable = XmlLevelLoader.getAttribute(reader, "collidable");
+				String blockNotify = XmlLevelLoader.getAttribute(reader, "notify");
+				objectBlock.setAttributes(blockCollidable, blockNotify, "");
+				
+				int blockX = Integer.parseInt(XmlLevelLoader.getAttribute(reader, "x"));
+				int blockY = Integer.parseInt(XmlLevelLoader.getAttribute(reader, "y"));
+				putObject(objectBlock, blockX, blockY);
+				
+				XmlLevelLoader.skipElement(reader);
+				break;
+			case "door":
+				// Load a door.
+				int doorX = Integer.parseInt(XmlLevelLoader.getAttribute(reader, "x"));
+				int doorY = Integer.parseInt(XmlLevelLoader.getAttribute(reader, "y"));
+				
+				char doorPiece = XmlLevelLoader.getAttribute(reader, "piece").charAt(0);
+				String keyName = XmlLevelLoader.getAttribute(reader, "key").replace('\n', ' ');
+				
+				Door objectDoor = new Door(doorPiece, keyTable.intern(keyName), keyName, Boolean.valueOf(XmlLevelLoader.getAttribute(reader, "inverted")));
+				
+				String doorCollidable = XmlLevelLoader.getAttribute(reader, "collidable");
+				String doorNotify = XmlLevelLoader.getAttribute(reader, "notify");
+				objectDoor.setAttributes(doorCollidable, doorNotify, "");
+				
+				putObject(objectDoor, doorX, doorY);
+				
+				XmlLevelLoader.skipElement(reader);
+				break;
+			default:
+				// Anything else is looked inside, since it may hold more of the room's elements.
+				depth++;
+				break;
+			}
+		}
+		
+		if (roomText == null) {
+			// If there is no map in the room, throw an error.
+			throw new IllegalArgumentException("There is no map in room '" + reference + "'");
+		}
+		char[][] rows = new char[Game.ROOM_HEIGHT][];
+		for (int j = 0; j < rows.length; j++) {
+			rows[j] = roomText[j].trim().substring(1, Game.ROOM_WIDTH + 1).toCharArray();
+		}
+		setMap(rows);
+	}
+	
+	/**
+	 * Sets the map of this <code>RoomDefinition</code> without any objects, then
+	 * puts the pieces of its objects on top of it to make its display.
+	 *
+	 * @param rows
+	 *            The rows of the map. They are copied.
+	 * @throws IllegalArgumentException
+	 *             If the map is not the size of the display.
+	 */
+	void setMap(char[][] rows) throws IllegalArgumentException {
+		if (rows.length != Game.ROOM_HEIGHT) {
+			// If the height of the map in the room is not the same size as the game's height, throw an error.
+			throw new IllegalArgumentException("The height of the map in room '" + reference + "' is invalid");
+		}
+		map = new char[Game.ROOM_HEIGHT][];
+		display = new char[Game.ROOM_HEIGHT][];
+		for (int j = 0; j < rows.length; j++) {
+			if (rows[j].length != Game.ROOM_WIDTH) {
+				// If a row in the map in the room is not the same size as the game's width, throw an error.
+				throw new IllegalArgumentException("The length of row " + j + " in the map in room '" + reference + "' is invalid");
+			}
+			map[j] = rows[j].clone();
+			display[j] = rows[j].clone();
+		}
+		
+		// Put the pieces of the objects on top of the map.
+		for (int i = 0; i < objects.length; i++) {
+			if (objects[i] != null) {
+				display[i / Game.ROOM_WIDTH][i % Game.ROOM_WIDTH] = objects[i].piece;
+			}
+		}
+	}
+	
+	/**
+	 * Loads a transporter or transmitter from a level being read.
+	 *
+	 * @param reader
+	 *            The reader of the level, at the start of the transporter's
+	 *            element. It is left at the end of the transporter's element.
+	 * @param transporters
+	 *            The {@link Map} to put the {@link Transporter} in.
+	 * @param kind
+	 *            What to call the {@link Transporter}s in error messages.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If there is already a {@link Transporter} with the same "from"
+	 *             direction, or the data given is invalid.
+	 */
+	private void loadTransporter(XMLStreamReader reader, Map<Game.Direction, Transporter> transporters, String kind)
+			throws XMLStreamException, IllegalArgumentException {
+		Game.Direction directionFrom = Game.Direction.valueOf(XmlLevelLoader.getAttribute(reader, "from"));
+		if (transporters.get(directionFrom) != null) {
+			// If there are more than one transporters with the same "from" direction, throw an error.
+			throw new IllegalArgumentException("There are conflicting " + kind + " (" + directionFrom + ") in room '" + reference + "'");
+		}
+		
+		String direction = XmlLevelLoader.getAttribute(reader, "to");
+		Game.Direction directionTo;
+		if (direction.isEmpty()) {
+			directionTo = directionFrom;
+		} else {
+			directionTo = Game.Direction.valueOf(direction);
+		}
+		
+		// Parse the coordinates once, leaving missing ones as "~0".
+		Coordinate tx = Coordinate.parse(XmlLevelLoader.getAttribute(reader, "tx"));
+		Coordinate ty = Coordinate.parse(XmlLevelLoader.getAttribute(reader, "ty"));
+		Coordinate rtx = Coordinate.parse(XmlLevelLoader.getAttribute(reader, "trx"));
+		Coordinate rty = Coordinate.parse(XmlLevelLoader.getAttribute(reader, "try"));
+		
+		transporters.put(directionFrom, new Transporter(directionTo, rtx, rty, tx, ty));
+		
+		XmlLevelLoader.skipElement(reader);
+	}
+	
+	/**
+	 * Puts an object into this <code>RoomDefinition</code> at a position. Its
+	 * piece is displayed once the map of the <code>RoomDefinition</code> has been
+	 * set.
+	 *
+	 * @param object
+	 *            The object to put into this <code>RoomDefinition</code>.
+	 * @param x
+	 *            The x coordinate of the object.
+	 * @param y
+	 *            The y coordinate of the object.
+	 * @throws IllegalArgumentException
+	 *             If the position is outside of this <code>RoomDefinition</code>
+	 *             or there is already an object there.
+	 */
+	void putObject(RoomObject object, int x, int y) throws IllegalArgumentException {
+		if (x < 0 || x >= Game.ROOM_WIDTH || y < 0 || y >= Game.ROOM_HEIGHT) {
+			// If the position is outside the room, throw an error.
+			throw new IllegalArgumentException("There is an object outside of room '" + reference + "' at x = " + x + ", y = " + y);
+		}
+		if (objects[y * Game.ROOM_WIDTH + x] != null) {
+			// If there is already an object in the position the object attempts to be put in, throw an error.
+			throw new IllegalArgumentException("There are conflicting objects in room '" + reference + "' at x = " + x + ", y = " + y);
+		}
+		
+		objects[y * Game.ROOM_WIDTH + x] = object;
+	}
+}
@@ -0,0 +1,128 @@
+package com.zach.tmc;
+
+/**
+ * The <code>RoomObject</code> class acts as a superclass for all of the objects
+ * in each {@link Room}.
+ * 
+ * @author Zach K
+ * @see Block
+ * @see Door
+ * @see Button
+ */
+abstract class RoomObject {
+	/** The piece of the <code>RoomObject</code>. */
+	char piece;
+	
+	/** Whether or not the block is solid. Does not always apply to {@link Door}s. */
+	boolean collidable = true;
+	/** Whether or not the to notify the player when they are on this object. */
+	boolean notify = false;
+	/** Whether or not to instantly activate this object. Only works for {@link Button}s. */
+	boolean instant = false;
+	
+	/**
+	 * Constructs a <code>RoomObject</code> with a piece.
+	 * 
+	 * @param piece
+	 *            The piece of the <code>RoomObject</code>.
+	 */
+	RoomObject(char piece) {
+		this.piece = piece;
+	}
+	
+	/**
+	 * Checks if the <code>RoomObject</code> is collidable.
+	 * 
+	 * @param game
+	 *            The {@link Game} to check with.
+	 * @return True if the object's {@link #collidable} is true or the object is a
+	 *         closed {@link Door}, false otherwise.
+	 */
+	public boolean getCollision(Game game) {
+		if (collidable) {
+			return true;
+		}
+		if (this instanceof Door) {
+			return !game.keys.get(((Door) this).key) ^ ((Door) this).inverted;
+		}
+		return false;
+	}
+	
+	/**
+	 * Sets the attributes of this <code>RoomObject</code> using three strings. If a
+	 * string is empty than that attribute is not evaluated.
+	 * 
+	 * @param collidable
+	 *            What to set {@link #collidable} to.
+	 * @param notify
+	 *            What to set {@link #notify} to.
+	 * @param instant
+	 *            What to set {@link #instant} to.
+	 */
+	public void setAttributes(String collidable, String notify, String instant) {
+		if (!collidable.isEmpty()) {
+			this.collidable = Boolean.valueOf(collidable);
+		}
+		if (!notify.isEmpty()) {
+			this.notify = Boolean.valueOf(notify);
+		}
+		if (!instant.isEmpty()) {
+			this.instant = Boolean.valueOf(instant);
+		}
+	}
+	
+	/**
+	 * Sets the <code>RoomObject</code>'s {@link #collidable} field.
+	 * 
+	 * @param collidable
+	 *            What to set {@link #collidable} to.
+	 */
+	public void setCollidable(boolean collidable) {
+		this.collidable = collidable;
+	}
+	
+	/**
+	 * Sets the <code>RoomObject</code>'s {@link #notify} field.
+	 * 
+	 * @param collidable
+	 *            What to set {@link #notify} to.
+	 */
+	public void setNotify(boolean notify) {
+		this.notify = notify;
+	}
+	
+	/**
+	 * Sets the <code>RoomObject</code>'s {@link #instant} field.
+	 * 
+	 * @param collidable
+	 *            What to set {@link #instant} to.
+	 */
+	public void setInstant(boolean instant) {
+		this.instant = instant;
+	}
+	
+	/**
+	 * Returns the attributes of this <code>RoomObject</code> in String form.
+	 * 
+	 * @return The attributes of this <code>RoomObject</code> in String form.
+	 */
+	public String getAttributes() {
+		return "c=" + collidable + ",n=" + notify + ",i=" + instant;
+	}
+	
+	/**
+	 * Describes this <code>RoomObject</code> as it is in a {@link Game}.
+	 * 
+	 * @param game
+	 *            The {@link Game} to describe this <code>RoomObject</code> in.
+	 * @return The description of this <code>RoomObject</code>.
+	 */
+	public String describe(Game game) {
+		return toString();
+	}
+	
+	@Override
+	public String toString() {
+		return getClass().getName() + "[" + piece + "," + getAttributes() + "]";
+	}
+}
@@ -0,0 +1,23 @@
+package com.zach.tmc;
+
+/**
+ * The <code>RoomSource</code> class holds the data of a {@link RoomDefinition}
+ * that has not been built yet, in whatever form its {@link LevelLoader} read it
+ * in.
+ * 
+ * @author Zach K
+ */
+abstract class RoomSource {
+	/**
+	 * Builds the {@link RoomDefinition} this <code>RoomSource</code> holds the
+	 * data of.
+	 * 
+	 * @param reference
+	 *            The reference character of the {@link RoomDefinition}.
+	 * @return The {@link RoomDefinition} that was built.
+	 * @throws IllegalArgumentException
+	 *             If the {@link RoomDefinition} cannot be created with its data,
+	 *             for a wide variety of reasons.
+	 */
+	abstract RoomDefinition build(char reference) throws IllegalArgumentException;
+}
@@ -0,0 +1,399 @@
+package com.zach.tmc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The <code>SaveFile</code> class holds where the player is in a {@link Game}
+ * and which keys they have, which is everything needed to carry on playing it
+ * later. It is written in a small binary format through a single buffer, so
+ * even saves with many keys are read and written in one go. This is the layout
+ * of a save file (all numbers are big-endian):
+ * <table border="1" cellpadding="2">
+ *   <caption>Save File Layout</caption>
+ *   <tr>
+ *     <th>Part</th>
+ *     <th>Contents</th>
+ *   </tr>
+ *   <tr>
+ *     <td><b>header</b></td>
+ *     <td>int {@link #MAGIC}, short {@link #FORMAT_VERSION}, byte flags, int
+ *     length of the body</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>body</b></td>
+ *     <td>the string of the level path, int floor, int rx, ry, x, y, int keys,
+ *     then the string of each key</td>
+ *   </tr>
+ *   <tr>
+ *     <td><b>checksum</b></td>
+ *     <td>int CRC-32 of the body, if the {@link #CHECKSUM} flag is set</td>
+ *   </tr>
+ * </table>
+ * Strings are written as a short length and their bytes in UTF-8. Save files
+ * from older versions of The Maze Caves, which were written as encoded text,
+ * can still be read.
+ *
+ * @author Zach K
+ */
+public class SaveFile {
+	/** The number every save file starts with ("TMCS"). */
+	public static final int MAGIC = 0x544D4353;
+	/** The version of the save file format. */
+	public static final int FORMAT_VERSION = 1;
+	/** The file extension of save files. */
+	public static final String EXTENSION = ".save";
+	/** The flag set when the body of a save file is followed by its checksum. */
+	public static final int CHECKSUM = 1;
+	/** The size of the header of a save file. */
+	static final int HEADER_SIZE = 11;
+	
+	/** The path to the level being played. */
+	public final String levelPath;
+	/** The floor the player is on. */
+	public final int floorNumber;
+	/** The x coordinate of the room the player is in. */
+	public final int rx;
+	/** The y coordinate of the room the player is in. */
+	public final int ry;
+	/** The x coordinate of the player. */
+	public final int x;
+	/** The y coordinate of the player. */
+	public final int y;
+	/** The names of the keys that are active. */
+	public final String[] keys;
+	
+	/**
+	 * Constructs a <code>SaveFile</code>.
+	 *
+	 * @param levelPath
+	 *            The path to the level being played.
+	 * @param floorNumber
+	 *            The floor the player is on.
+	 * @param rx
+	 *            The x coordinate of the room the player is in.
+	 * @param ry
+	 *            The y coordinate of the room the player is in.
+	 * @param x
+	 *            The x coordinate of the player.
+	 * @param y
+	 *            The y coordinate of the player.
+	 * @param keys
+	 *            The names of the keys that are active.
+	 */
+	public SaveFile(String levelPath, int floorNumber, int rx, int ry, int x, int y, String[] keys) {
+		this.levelPath = levelPath;
+		this.floorNumber = floorNumber;
+		this.rx = rx;
+		this.ry = ry;
+		this.x = x;
+		this.y = y;
+		this.keys = keys;
+	}
+	
+	/**
+	 * Takes a <code>SaveFile</code> of a {@link Game} as it is right now. It must
+	 * be called on the thread the {@link Game} runs on.
+	 *
+	 * @param game
+	 *            The {@link Game} to save.
+	 * @return The <code>SaveFile</code> of the {@link Game}.
+	 */
+	public static SaveFile capture(Game game) {
+		String[] keys = new String[game.keys.cardinality()];
+		int i = 0;
+		for (int id = game.keys.nextSetBit(0); id >= 0; id = game.keys.nextSetBit(id + 1)) {
+			keys[i++] = game.keyTable.getName(id);
+		}
+		return new SaveFile(game.levelPath, game.floorNumber, game.rx, game.ry, game.x, game.y, keys);
+	}
+	
+	/**
+	 * Reads a save file, in either the current format or the format of older
+	 * versions.
+	 *
+	 * @param path
+	 *            The path to the save file.
+	 * @return The <code>SaveFile</code> that was read.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 * @throws IllegalArgumentException
+	 *             If the file is not a save file, or is corrupted.
+	 */
+	public static SaveFile read(String path) throws IOException, IllegalArgumentException {
+		ByteBuffer buffer;
+		FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("The save file is too large");
+			}
+			buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+			}
+			buffer.flip();
+		} finally {
+			channel.close();
+		}
+		return decode(buffer);
+	}
+	
+	/**
+	 * Writes this <code>SaveFile</code>, with a checksum, to a file. It is
+	 * written with {@link #writeAtomically(String, ByteBuffer)}, so the file
+	 * never holds half of a save.
+	 *
+	 * @param path
+	 *            The path to write to. The file is replaced if it exists.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public void write(String path) throws IOException {
+		writeAtomically(path, encode(true));
+	}
+	
+	/**
+	 * Writes a file in a way that it either has everything written to it or is
+	 * left as it was. The bytes are written to a temporary file next to it,
+	 * forced onto the disk, then moved over the file in one step.
+	 *
+	 * @param path
+	 *            The path to write to. The file is replaced if it exists.
+	 * @param buffer
+	 *            The bytes to write, from the position of the buffer to its
+	 *            limit.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	static void writeAtomically(String path, ByteBuffer buffer) throws IOException {
+		Path target = Paths.get(path).toAbsolutePath();
+		// Unlike Files.createTempFile, this gives the file the same permissions any new file would get.
+		Path temporary = File.createTempFile("." + target.getFileName() + ".", ".tmp", target.getParent().toFile()).toPath();
+		try {
+			FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			try {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+			
+			// Replace the file in one step, if the file system can.
+			try {
+				Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			// If anything went wrong, the temporary file is cleaned up.
+			Files.deleteIfExists(temporary);
+		}
+	}
+	
+	/**
+	 * Encodes this <code>SaveFile</code> in the save file format.
+	 *
+	 * @param checksum
+	 *            Whether or not to follow the body with its checksum.
+	 * @return A buffer holding the encoded save file, ready to be read.
+	 */
+	public ByteBuffer encode(boolean checksum) {
+		// Encode the strings first, so the size of the body is known.
+		byte[] level = levelPath.getBytes(StandardCharsets.UTF_8);
+		byte[][] keyBytes = new byte[keys.length][];
+		int bodySize = 2 + level.length + 4 * 6;
+		for (int i = 0; i < keys.length; i++) {
+			keyBytes[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+			bodySize += 2 + keyBytes[i].length;
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bodySize + (checksum ? 4 : 0));
+		buffer.putInt(MAGIC);
+		buffer.putShort((short) FORMAT_VERSION);
+		buffer.put((byte) (checksum ? CHECKSUM : 0));
+		buffer.putInt(bodySize);
+		
+		// Write the body.
+		putString(buffer, level);
+		buffer.putInt(floorNumber);
+		buffer.putInt(rx);
+		buffer.putInt(ry);
+		buffer.putInt(x);
+		buffer.putInt(y);
+		buffer.putInt(keys.length);
+		for (byte[] key : keyBytes) {
+			putString(buffer, key);
+		}
+		
+		if (checksum) {
+			CRC32 crc = new CRC32();
+			crc.update(buffer.array(), HEADER_SIZE, bodySize);
+			buffer.putInt((int) crc.getValue());
+		}
+		buffer.flip();
+		return buffer;
+	}
+	
+	/**
+	 * Writes a string in the save file format.
+	 *
+	 * @param buffer
+	 *            The buffer to write to.
+	 * @param bytes
+	 *            The string in UTF-8.
+	 * @throws IllegalArgumentException
+	 *             If the string is too long.
+	 */
+	private static void putString(ByteBuffer buffer, byte[] bytes) throws IllegalArgumentException {
+		if (bytes.length > 0xFFFF) {
+			throw new IllegalArgumentException("A string in the save file is too long");
+		}
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+	
+	/**
+	 * Decodes a save file, in either the current format or the format of older
+	 * versions.
+	 *
+	 * @param buffer
+	 *            A buffer holding the save file. It is read from its position to
+	 *            its limit.
+	 * @return The <code>SaveFile</code> that was decoded.
+	 * @throws IllegalArgumentException
+	 *             If the buffer does not hold a save file, or the save file is
+	 *             corrupted.
+	 */
+	public static SaveFile decode(ByteBuffer buffer) throws IllegalArgumentException {
+		if (buffer.remaining() < 4 || buffer.getInt(buffer.position()) != MAGIC) {
+			return decodeLegacy(buffer);
+		}
+		
+		try {
+			// Read the header.
+			buffer.getInt();
+			int version = buffer.getShort();
+			if (version > FORMAT_VERSION) {
+				throw new IllegalArgumentException("The save file is from a newer version (" + version + ")");
+			}
+			int flags = buffer.get();
+			int bodySize = buffer.getInt();
+			int bodyStart = buffer.position();
+			if (bodySize < 0 || bodySize > buffer.remaining()) {
+				throw new IllegalArgumentException("Corrupted save file");
+			}
+			
+			// Check the body against its checksum before anything is read from it.
+			if ((flags & CHECKSUM) != 0) {
+				ByteBuffer body = buffer.duplicate();
+				body.limit(bodyStart + bodySize);
+				CRC32 crc = new CRC32();
+				crc.update(body);
+				if (buffer.getInt(bodyStart + bodySize) != (int) crc.getValue()) {
+					throw new IllegalArgumentException("Corrupted save file");
+				}
+			}
+			
+			// Read the body.
+			String levelPath = getString(buffer);
+			int floorNumber = buffer.getInt();
+			int rx = buffer.getInt();
+			int ry = buffer.getInt();
+			int x = buffer.getInt();
+			int y = buffer.getInt();
+			int keyCount = buffer.getInt();
+			if (keyCount < 0 || keyCount > (bodyStart + bodySize - buffer.position()) / 2) {
+				throw new IllegalArgumentException("Corrupted save file");
+			}
+			String[] keys = new String[keyCount];
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = getString(buffer);
+			}
+			if (buffer.position() != bodyStart + bodySize) {
+				throw new IllegalArgumentException("Corrupted save file");
+			}
+			return new SaveFile(levelPath, floorNumber, rx, ry, x, y, keys);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Corrupted save file", e);
+		}
+	}
+	
+	/**
+	 * Reads a string in the save file format.
+	 *
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return The string.
+	 */
+	private static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Decodes a save file written by an older version of The Maze Caves. Those
+	 * are UTF-8 text, starting with a key character, where every other
+	 * character was shifted up by the key and multiplied by 10. Lines hold the
+	 * level path, the floor, rx, ry, x, y, then the names of the keys.
+	 *
+	 * @param buffer
+	 *            A buffer holding the save file.
+	 * @return The <code>SaveFile</code> that was decoded.
+	 * @throws IllegalArgumentException
+	 *             If the buffer does not hold a save file, or the save file is
+	 *             corrupted.
+	 */
+	static SaveFile decodeLegacy(ByteBuffer buffer) throws IllegalArgumentException {
+		CharBuffer text;
+		try {
+			text = StandardCharsets.UTF_8.newDecoder().decode(buffer);
+		} catch (CharacterCodingException e) {
+			throw new IllegalArgumentException("Corrupted save file", e);
+		}
+		if (!text.hasRemaining()) {
+			throw new IllegalArgumentException("Corrupted save file");
+		}
+		
+		// Decode the characters in place, splitting them into lines as they go.
+		byte key = (byte) text.get();
+		char[] chars = new char[text.remaining()];
+		List<String> lines = new ArrayList<String>();
+		int lineStart = 0;
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) (text.get() / 10 - key);
+			if (chars[i] == '\n') {
+				lines.add(new String(chars, lineStart, i - lineStart));
+				lineStart = i + 1;
+			}
+		}
+		lines.add(new String(chars, lineStart, chars.length - lineStart));
+		
+		if (lines.size() < 6) {
+			throw new IllegalArgumentException("Corrupted save file");
+		}
+		try {
+			return new SaveFile(lines.get(0), Integer.parseInt(lines.get(1)), Integer.parseInt(lines.get(2)), Integer.parseInt(lines.get(3)),
+					Integer.parseInt(lines.get(4)), Integer.parseInt(lines.get(5)), lines.subList(6, lines.size()).toArray(new String[lines.size() - 6]));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Corrupted save file", e);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.zach.tmc;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The <code>SaveWriter</code> class writes {@link SaveFile}s on a background
+ * thread, so that neither the display nor a {@link Game} ever waits on the
+ * disk. Saves are written one after another in the order they were given, so
+ * two saves to the same file always end with the later one. Each save is
+ * written with {@link SaveFile#writeAtomically(String, java.nio.ByteBuffer)},
+ * so a save file is never left half written, even if the program stops in the
+ * middle of writing it.
+ *
+ * @author Zach K
+ */
+public class SaveWriter {
+	/** The time the background thread waits for another save before it stops, in seconds. */
+	public static final long KEEP_ALIVE_TIME = 5;
+	
+	/**
+	 * The background thread saves are written on. It is not a daemon thread, so
+	 * the program does not close in the middle of a save, but it stops once it
+	 * has had nothing to write for a while.
+	 */
+	private static final ExecutorService executor = new ThreadPoolExecutor(0, 1, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					return new Thread(runnable, "TMC Save Writer");
+				}
+			});
+	
+	/**
+	 * The <code>Callback</code> interface is told how writing a
+	 * {@link SaveFile} went. Its methods are called on the background thread.
+	 *
+	 * @author Zach K
+	 */
+	public interface Callback {
+		/**
+		 * Called once the {@link SaveFile} has been written.
+		 *
+		 * @param path
+		 *            The path the {@link SaveFile} was written to.
+		 */
+		void saved(String path);
+		
+		/**
+		 * Called if the {@link SaveFile} could not be written. The file at the path
+		 * is left as it was.
+		 *
+		 * @param path
+		 *            The path the {@link SaveFile} was written to.
+		 * @param e
+		 *            Why the {@link SaveFile} could not be written.
+		 */
+		void failed(String path, Exception e);
+	}
+	
+	/**
+	 * This class only has static methods, so it cannot be constructed.
+	 */
+	private SaveWriter() {
+	}
+	
+	/**
+	 * Writes a {@link SaveFile} on the background thread.
+	 *
+	 * @param save
+	 *            The {@link SaveFile} to write.
+	 * @param path
+	 *            The path to write to. The file is replaced if it exists.
+	 * @param callback
+	 *            The {@link Callback} to tell how it went, or <code>null</code>.
+	 * @return Waits for the {@link SaveFile} to be written.
+	 */
+	public static Future<?> write(final SaveFile save, final String path, final Callback callback) {
+		return executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					save.write(path);
+				} catch (Exception e) {
+					if (callback != null) {
+						callback.failed(path, e);
+					}
+					return;
+				}
+				if (callback != null) {
+					callback.saved(path);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,250 @@
+package com.zach.tmc;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The <code>SessionHost</code> class runs many {@link Game}s at once and keeps
+ * track of them while they are played. Each {@link Game} runs its main loop on
+ * a thread of its own, which waits without doing anything until the player
+ * makes an input, so a mostly idle <code>Game</code> costs little more than
+ * its own state. When the Java version supports them, the threads are virtual
+ * threads, which lets a single program host many thousands of
+ * <code>Game</code>s. Otherwise, small daemon threads are used instead.
+ * <p>
+ * Every <code>Game</code> started by a <code>SessionHost</code> is given a
+ * {@link Session}, which is listed until the <code>Game</code> ends.
+ * <code>Game</code>s can be asked to stop, or evicted, which interrupts them
+ * and forgets them right away.
+ *
+ * @author Zach K
+ */
+public class SessionHost {
+	/** The size of the stack of each thread when virtual threads are not supported. */
+	public static final long PLATFORM_STACK_SIZE = 256 * 1024;
+	
+	/** Runs the main loop of each {@link Game}, each on a thread of its own. */
+	private final ExecutorService executor;
+	/** Whether or not the threads of this <code>SessionHost</code> are virtual threads. */
+	public final boolean virtual;
+	/** The {@link Session}s of the {@link Game}s being played, by their ID. */
+	private final Map<Long, Session> sessions = new ConcurrentHashMap<Long, Session>();
+	/** The ID to give the next {@link Session}. */
+	private final AtomicLong nextID = new AtomicLong(1);
+	
+	/**
+	 * The <code>Session</code> class holds a {@link Game} being played by a
+	 * {@link SessionHost}, along with what the {@link SessionHost} needs to know
+	 * to manage it.
+	 *
+	 * @author Zach K
+	 */
+	public static class Session {
+		/** The ID of this <code>Session</code>, unique to its {@link SessionHost}. */
+		public final long id;
+		/** The {@link Game} being played. */
+		public final Game game;
+		/** The time this <code>Session</code> was started, in milliseconds. */
+		public final long startTime = System.currentTimeMillis();
+		/** Controls the thread the {@link #game} is running on. */
+		private volatile Future<?> future;
+		
+		/**
+		 * Constructs a <code>Session</code> for a {@link Game}.
+		 *
+		 * @param id
+		 *            The ID of this <code>Session</code>.
+		 * @param game
+		 *            The {@link Game} to be played.
+		 */
+		Session(long id, Game game) {
+			this.id = id;
+			this.game = game;
+		}
+		
+		/**
+		 * Gets the time since the player last made an input, or since this
+		 * <code>Session</code> started if they have not made one yet.
+		 *
+		 * @return The idle time in milliseconds.
+		 */
+		public long getIdleTime() {
+			return System.currentTimeMillis() - Math.max(startTime, game.lastInputTime);
+		}
+		
+		@Override
+		public String toString() {
+			return "Session[id=" + id + ",level=\"" + game.levelPath + "\",floor=" + game.floorNumber + ",idle=" + getIdleTime() + "ms]";
+		}
+	}
+	
+	/**
+	 * Constructs a <code>SessionHost</code>, using virtual threads if the Java
+	 * version supports them.
+	 */
+	public SessionHost() {
+		ExecutorService virtualExecutor = null;
+		try {
+			// Virtual threads are looked up by name, so the program still runs on older Java versions.
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			virtualExecutor = (ExecutorService) method.invoke(null);
+		} catch (Exception e) {
+		}
+		
+		virtual = virtualExecutor != null;
+		if (virtual) {
+			executor = virtualExecutor;
+		} else {
+			// Otherwise, every Game gets a small thread of its own that never keeps the program open.
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				/** The amount of threads made so far, used to name them. */
+				private final AtomicLong count = new AtomicLong();
+				
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(null, runnable, "TMC Session " + count.incrementAndGet(), PLATFORM_STACK_SIZE);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Starts playing a {@link Game} on a thread of its own.
+	 *
+	 * @param game
+	 *            The {@link Game} to play. It must not have been started yet.
+	 * @return The {@link Session} of the {@link Game}.
+	 */
+	public Session start(final Game game) {
+		final Session session = new Session(nextID.getAndIncrement(), game);
+		sessions.put(session.id, session);
+		
+		session.future = executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					game.run();
+				} finally {
+					// Once the Game ends, for any reason, it is no longer listed.
+					sessions.remove(session.id, session);
+				}
+			}
+		});
+		return session;
+	}
+	
+	/**
+	 * Gets a {@link Session} by its ID.
+	 *
+	 * @param id
+	 *            The ID of the {@link Session}.
+	 * @return The {@link Session}, or <code>null</code> if there is no
+	 *         {@link Game} with that ID being played.
+	 */
+	public Session getSession(long id) {
+		return sessions.get(id);
+	}
+	
+	/**
+	 * Lists the {@link Session}s of every {@link Game} being played, in the order
+	 * they were started.
+	 *
+	 * @return A copy of the list of {@link Session}s.
+	 */
+	public List<Session> list() {
+		List<Session> list = new ArrayList<Session>(sessions.values());
+		Collections.sort(list, new Comparator<Session>() {
+			@Override
+			public int compare(Session a, Session b) {
+				return Long.compare(a.id, b.id);
+			}
+		});
+		return list;
+	}
+	
+	/**
+	 * Gets the amount of {@link Game}s being played.
+	 *
+	 * @return The amount of {@link Session}s.
+	 */
+	public int size() {
+		return sessions.size();
+	}
+	
+	/**
+	 * Asks a {@link Game} to stop. It ends once it has finished what it is
+	 * doing, and is listed until then.
+	 *
+	 * @param id
+	 *            The ID of the {@link Session} of the {@link Game}.
+	 * @return True if there was a {@link Game} with that ID, false otherwise.
+	 */
+	public boolean stop(long id) {
+		Session session = sessions.get(id);
+		if (session == null) {
+			return false;
+		}
+		session.game.stop();
+		return true;
+	}
+	
+	/**
+	 * Evicts a {@link Game}: it is no longer listed, and its thread is
+	 * interrupted so that it ends as soon as possible.
+	 *
+	 * @param id
+	 *            The ID of the {@link Session} of the {@link Game}.
+	 * @return True if there was a {@link Game} with that ID, false otherwise.
+	 */
+	public boolean evict(long id) {
+		Session session = sessions.remove(id);
+		if (session == null) {
+			return false;
+		}
+		session.game.stop();
+		Future<?> future = session.future;
+		if (future != null) {
+			future.cancel(true);
+		}
+		return true;
+	}
+	
+	/**
+	 * Evicts every {@link Game} the player has not made an input in for a while.
+	 *
+	 * @param maxIdleTime
+	 *            The longest time a {@link Game} may be idle for, in milliseconds.
+	 * @return The amount of {@link Game}s evicted.
+	 */
+	public int evictIdle(long maxIdleTime) {
+		int evicted = 0;
+		for (Session session : sessions.values()) {
+			if (session.getIdleTime() > maxIdleTime && evict(session.id)) {
+				evicted++;
+			}
+		}
+		return evicted;
+	}
+	
+	/**
+	 * Evicts every {@link Game} and stops taking new ones.
+	 */
+	public void shutdown() {
+		for (Session session : sessions.values()) {
+			evict(session.id);
+		}
+		executor.shutdownNow();
+	}
+}
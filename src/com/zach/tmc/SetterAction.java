@@ -0,0 +1,42 @@
+package com.zach.tmc;
+
+/**
+ * The <code>SetterAction</code> class is an {@link Action} that sets the value
+ * of a key.
+ *
+ * @author Zach K
+ */
+class SetterAction extends Action {
+	/** The ID of the key to set. */
+	final int key;
+	/** The compiled value to set the key to. */
+	final BooleanEvaluator.Expression value;
+	/** The name of the key to set. */
+	final String keyText;
+	
+	SetterAction(String condition, KeyTable keyTable, String key, String value) throws IllegalArgumentException {
+		super(condition, keyTable);
+		this.key = keyTable.intern(key);
+		this.value = BooleanEvaluator.compile(value, keyTable);
+		this.keyText = key;
+	}
+	
+	SetterAction(BooleanEvaluator.Expression condition, KeyTable keyTable, String key, BooleanEvaluator.Expression value) {
+		super(condition);
+		this.key = keyTable.intern(key);
+		this.value = value;
+		this.keyText = key;
+	}
+	
+	@Override
+	void perform(Game game) {
+		game.keys.set(key, value.evaluate(game.keys));
+		
+		game.room.reload();
+	}
+	
+	@Override
+	String getAttributes() {
+		return "type=setter,key=\"" + keyText + "\",value=\"" + value + "\"";
+	}
+}
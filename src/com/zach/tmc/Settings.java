@@ -0,0 +1,143 @@
+package com.zach.tmc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The <code>Settings</code> class holds the user's settings, already checked
+ * and turned into the types they are used as. A <code>Settings</code> never
+ * changes; whenever a setting is changed, the {@link SettingsStore} makes a
+ * new <code>Settings</code> and puts it in place of the old one in one step,
+ * so the settings can be read from any thread without ever seeing half of a
+ * change.
+ *
+ * @author Zach K
+ */
+public class Settings {
+	/** The settings used when there is no settings file. */
+	public static final Settings DEFAULT = new Settings(defaultValues());
+	
+	/** The path to the save file that is selected. */
+	public final String filePath;
+	/** The location of the divider between the "New Game" and "Load Game" buttons. */
+	public final int dividerLocation;
+	/** The user's control for moving left. */
+	public final int leftKeyCode;
+	/** The user's control for moving up. */
+	public final int upKeyCode;
+	/** The user's control for moving right. */
+	public final int rightKeyCode;
+	/** The user's control for moving down. */
+	public final int downKeyCode;
+	/** The user's control for interacting with objects. */
+	public final int actionKeyCode;
+	/** The user's custom piece in the {@link Game}. */
+	public final char playerPiece;
+	/** The size of the font of the display of the {@link Game}. */
+	public final int fontSize;
+	
+	/**
+	 * Constructs <code>Settings</code> from the settings as they are written in
+	 * the settings file.
+	 *
+	 * @param values
+	 *            The settings, by name.
+	 * @throws IllegalArgumentException
+	 *             If a setting is missing or is not valid.
+	 */
+	Settings(Map<String, String> values) throws IllegalArgumentException {
+		filePath = get(values, "file_path");
+		dividerLocation = getInt(values, "divider_location");
+		leftKeyCode = getInt(values, "key_left");
+		upKeyCode = getInt(values, "key_up");
+		rightKeyCode = getInt(values, "key_right");
+		downKeyCode = getInt(values, "key_down");
+		actionKeyCode = getInt(values, "key_action");
+		fontSize = getInt(values, "font_size");
+		
+		String player = get(values, "player");
+		if (player.isEmpty()) {
+			throw new IllegalArgumentException("The setting \"player\" is empty");
+		}
+		// A space can be read back as the start of a new line.
+		playerPiece = player.charAt(0) == '\n' ? ' ' : player.charAt(0);
+	}
+	
+	/**
+	 * Gets the value of a setting.
+	 *
+	 * @param values
+	 *            The settings, by name.
+	 * @param name
+	 *            The name of the setting.
+	 * @return The value of the setting.
+	 * @throws IllegalArgumentException
+	 *             If the setting is missing.
+	 */
+	private static String get(Map<String, String> values, String name) throws IllegalArgumentException {
+		String value = values.get(name);
+		if (value == null) {
+			throw new IllegalArgumentException("The setting \"" + name + "\" is missing");
+		}
+		return value;
+	}
+	
+	/**
+	 * Gets the value of a setting that is a number.
+	 *
+	 * @param values
+	 *            The settings, by name.
+	 * @param name
+	 *            The name of the setting.
+	 * @return The value of the setting.
+	 * @throws IllegalArgumentException
+	 *             If the setting is missing or is not a number.
+	 */
+	private static int getInt(Map<String, String> values, String name) throws IllegalArgumentException {
+		try {
+			return Integer.parseInt(get(values, name).trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("The setting \"" + name + "\" is not a number", e);
+		}
+	}
+	
+	/**
+	 * Creates the settings used when there is no settings file, as they are
+	 * written in the settings file.
+	 *
+	 * @return The default settings, by name.
+	 */
+	private static Map<String, String> defaultValues() {
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		values.put("file_path", "");
+		values.put("divider_location", "180");
+		values.put("key_left", "37");
+		values.put("key_up", "38");
+		values.put("key_right", "39");
+		values.put("key_down", "40");
+		values.put("key_action", "10");
+		values.put("player", "P");
+		values.put("font_size", "32");
+		return values;
+	}
+	
+	/**
+	 * Gets these <code>Settings</code> as they are written in the settings
+	 * file.
+	 *
+	 * @return The settings, by name, in the order they are written in.
+	 */
+	public Map<String, String> toMap() {
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		values.put("file_path", filePath);
+		values.put("divider_location", String.valueOf(dividerLocation));
+		values.put("key_left", String.valueOf(leftKeyCode));
+		values.put("key_up", String.valueOf(upKeyCode));
+		values.put("key_right", String.valueOf(rightKeyCode));
+		values.put("key_down", String.valueOf(downKeyCode));
+		values.put("key_action", String.valueOf(actionKeyCode));
+		values.put("player", String.valueOf(playerPiece));
+		values.put("font_size", String.valueOf(fontSize));
+		return values;
+	}
+}
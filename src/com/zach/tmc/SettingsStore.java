@@ -0,0 +1,277 @@
+package com.zach.tmc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * The <code>SettingsStore</code> class keeps the user's settings in memory and
+ * writes them to the settings.xml file behind the scenes. Changing a setting
+ * only changes it in memory; the file is written on a background thread once
+ * the settings have stopped changing for {@link #WRITE_DELAY} milliseconds, so
+ * typing or dragging a slider writes the file once instead of once for every
+ * change. The file is replaced in one step, so it is never left half written,
+ * and anything not written yet is written when the program closes.
+ * <p>
+ * Every change is checked and published as a new {@link Settings}, which can
+ * be read from any thread with {@link #getSettings()} without taking a lock.
+ *
+ * @author Zach K
+ */
+public class SettingsStore {
+	/** The time to wait after the last change before the settings are written, in milliseconds. */
+	public static final long WRITE_DELAY = 500;
+	/** The longest time a change can wait to be written while the settings keep changing, in milliseconds. */
+	public static final long MAX_WRITE_DELAY = 5000;
+	
+	/** The background thread the settings are written on, shared by every <code>SettingsStore</code>. */
+	private static final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "TMC Settings Writer");
+			// Anything left is written by the shutdown hook instead.
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	static {
+		executor.setRemoveOnCancelPolicy(true);
+	}
+	
+	/** The path to the settings file. */
+	public final String path;
+	/** The settings, by name, in the order they are written in. */
+	private final Map<String, String> values = new LinkedHashMap<String, String>();
+	/** The settings as they are used, replaced in one step whenever a setting changes. */
+	private volatile Settings settings;
+	/** Counts the changes made to the settings. */
+	private long version = 0;
+	/** The {@link #version} last written to the settings file. */
+	private long writtenVersion = 0;
+	/** The time of the first change not written yet, in milliseconds. */
+	private long firstChange;
+	/** The write waiting to happen, or <code>null</code> if there is none. */
+	private ScheduledFuture<?> pendingWrite;
+	/** Held while the settings file is written, so only one write happens at a time. */
+	private final Object writeLock = new Object();
+	
+	/** Writes the settings that have changed. */
+	private final Runnable writeTask = new Runnable() {
+		@Override
+		public void run() {
+			synchronized (SettingsStore.this) {
+				pendingWrite = null;
+			}
+			try {
+				flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	};
+	
+	/**
+	 * Constructs a <code>SettingsStore</code> holding some settings that have not
+	 * been written yet. Nothing is written until a setting is changed or it is
+	 * flushed.
+	 *
+	 * @param path
+	 *            The path to the settings file.
+	 * @param settings
+	 *            The settings to start with.
+	 */
+	public SettingsStore(String path, Settings settings) {
+		this(path, settings.toMap());
+		version = 1;
+	}
+	
+	/**
+	 * Constructs a <code>SettingsStore</code> holding settings as they are
+	 * written in the settings file.
+	 *
+	 * @param path
+	 *            The path to the settings file.
+	 * @param values
+	 *            The settings, by name.
+	 * @throws IllegalArgumentException
+	 *             If a setting is missing or is not valid.
+	 */
+	private SettingsStore(String path, Map<String, String> values) throws IllegalArgumentException {
+		this.path = path;
+		this.values.putAll(values);
+		settings = new Settings(this.values);
+		
+		// Write anything left when the program closes.
+		Runtime.getRuntime().addShutdownHook(new Thread("TMC Settings Flush") {
+			@Override
+			public void run() {
+				try {
+					flush();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Reads the settings from a settings file.
+	 *
+	 * @param path
+	 *            The path to the settings file.
+	 * @return The <code>SettingsStore</code> of the settings file.
+	 * @throws Exception
+	 *             If the settings file cannot be read.
+	 */
+	public static SettingsStore load(String path) throws Exception {
+		Element root = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(path)).getDocumentElement();
+		
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+			if (node.getNodeType() == Node.ELEMENT_NODE) {
+				values.put(node.getNodeName(), node.getTextContent());
+			}
+		}
+		return new SettingsStore(path, values);
+	}
+	
+	/**
+	 * Gets the settings as they are used. This never waits, and the
+	 * {@link Settings} returned never change, so they can be read from any
+	 * thread.
+	 *
+	 * @return The current {@link Settings}.
+	 */
+	public Settings getSettings() {
+		return settings;
+	}
+	
+	/**
+	 * Gets the value of a setting.
+	 *
+	 * @param name
+	 *            The name of the setting.
+	 * @return The value of the setting, or <code>null</code> if there is no such
+	 *         setting.
+	 */
+	public synchronized String get(String name) {
+		return values.get(name);
+	}
+	
+	/**
+	 * Sets the value of a setting. The settings file is written a little later,
+	 * once the settings have stopped changing.
+	 *
+	 * @param name
+	 *            The name of the setting.
+	 * @param value
+	 *            The value to set.
+	 * @throws IllegalArgumentException
+	 *             If the value is not valid for the setting. The setting is left
+	 *             as it was.
+	 */
+	public synchronized void set(String name, String value) throws IllegalArgumentException {
+		String oldValue = values.put(name, value);
+		if (value.equals(oldValue)) {
+			return;
+		}
+		
+		// Check the change and publish it, or undo it if it is not valid.
+		try {
+			settings = new Settings(values);
+		} catch (IllegalArgumentException e) {
+			if (oldValue == null) {
+				values.remove(name);
+			} else {
+				values.put(name, oldValue);
+			}
+			throw e;
+		}
+		version++;
+		
+		// Put off the write until the settings stop changing, but not for too long.
+		long now = System.currentTimeMillis();
+		if (pendingWrite == null) {
+			firstChange = now;
+		} else {
+			pendingWrite.cancel(false);
+		}
+		long delay = Math.max(0, Math.min(WRITE_DELAY, firstChange + MAX_WRITE_DELAY - now));
+		pendingWrite = executor.schedule(writeTask, delay, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Writes the settings to the settings file right away, if they have changed
+	 * since they were last written.
+	 *
+	 * @throws IOException
+	 *             If the settings file cannot be written.
+	 */
+	public void flush() throws IOException {
+		synchronized (writeLock) {
+			// Take a copy of the settings, so they can keep changing while they are written.
+			StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><settings>");
+			long flushedVersion;
+			synchronized (this) {
+				if (version == writtenVersion) {
+					return;
+				}
+				for (Map.Entry<String, String> setting : values.entrySet()) {
+					xml.append('<').append(setting.getKey()).append('>');
+					escape(xml, setting.getValue());
+					xml.append("</").append(setting.getKey()).append('>');
+				}
+				flushedVersion = version;
+			}
+			xml.append("</settings>");
+			
+			SaveFile.writeAtomically(path, ByteBuffer.wrap(xml.toString().getBytes(StandardCharsets.UTF_8)));
+			synchronized (this) {
+				writtenVersion = flushedVersion;
+			}
+		}
+	}
+	
+	/**
+	 * Adds text to XML, escaping the characters XML gives meaning to.
+	 *
+	 * @param xml
+	 *            The XML to add to.
+	 * @param text
+	 *            The text to add.
+	 */
+	private static void escape(StringBuilder xml, String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '&':
+				xml.append("&amp;");
+				break;
+			case '<':
+				xml.append("&lt;");
+				break;
+			case '>':
+				xml.append("&gt;");
+				break;
+			case '\r':
+				xml.append("&#13;");
+				break;
+			default:
+				xml.append(c);
+				break;
+			}
+		}
+	}
+}
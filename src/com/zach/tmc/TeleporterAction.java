@@ -0,0 +1,71 @@
+package com.zach.tmc;
+
+/**
+ * The <code>TeleporterAction</code> class is an {@link Action} that moves the
+ * player to another spot on the same floor.
+ *
+ * @author Zach K
+ */
+class TeleporterAction extends Action {
+	/** The x coordinate of the room in the {@link Game#map} to move the player into. */
+	final Coordinate rx;
+	/** The y coordinate of the room in the {@link Game#map} to move the player into. */
+	final Coordinate ry;
+	/** The x coordinate to move the player into. */
+	final Coordinate x;
+	/** The y coordinate to move the player into. */
+	final Coordinate y;
+	
+	TeleporterAction(String condition, KeyTable keyTable, Coordinate rx, Coordinate ry, Coordinate x, Coordinate y)
+			throws IllegalArgumentException {
+		super(condition, keyTable);
+		this.rx = rx;
+		this.ry = ry;
+		this.x = x;
+		this.y = y;
+	}
+	
+	TeleporterAction(BooleanEvaluator.Expression condition, Coordinate rx, Coordinate ry, Coordinate x, Coordinate y) {
+		super(condition);
+		this.rx = rx;
+		this.ry = ry;
+		this.x = x;
+		this.y = y;
+	}
+	
+	@Override
+	void perform(Game game) {
+		int rx = this.rx.resolve(game.rx);
+		int ry = this.ry.resolve(game.ry);
+		int x = this.x.resolve(game.x);
+		int y = this.y.resolve(game.y);
+		
+		if (!(x >= Game.ROOM_WIDTH || x < 0 || y >= Game.ROOM_HEIGHT || y < 0)) {
+			game.direction = Game.Direction.CENTER;
+			
+			// Change the room.
+			if (game.rx != rx || game.ry != ry) {
+				game.rx = rx;
+				game.ry = ry;
+				
+				game.loadRoom(true);
+			}
+			
+			// Change the spot in the room.
+			if (game.newX != x || game.newY != y) {
+				game.newX = x;
+				game.newY = y;
+				
+				game.room.act(true, true);
+			}
+			
+		} else {
+			game.listener.showMessage(game, null, "The teleporter failed.");
+		}
+	}
+	
+	@Override
+	String getAttributes() {
+		return "type=teleporter,trx=" + rx + ",try=" + ry + ",tx=" + x + ",ty=" + y;
+	}
+}
@@ -0,0 +1,69 @@
+package com.zach.tmc;
+
+/**
+ * The <code>Transporter</code> class is responsible for holding the data about
+ * transporters and transmitters in the room.
+ * 
+ * @author Zach K
+ */
+class Transporter {
+	/** The direction to move the player in. */
+	final Game.Direction direction;
+	/** The x coordinate of the room in the {@link Game#map} to move the player into. */
+	final Coordinate rx;
+	/** The y coordinate of the room in the {@link Game#map} to move the player into. */
+	final Coordinate ry;
+	/** The x coordinate to move the player into. */
+	final Coordinate x;
+	/** The y coordinate to move the player into. */
+	final Coordinate y;
+	
+	/**
+	 * Constructs a <code>Transporter</code> with its appropriate data.
+	 * 
+	 * @param direction
+	 *            The direction to move the player in.
+	 * @param rx
+	 *            The x coordinate of the room in the {@link Game#map} to move the
+	 *            player into.
+	 * @param ry
+	 *            The y coordinate of the room in the {@link Game#map} to move the
+	 *            player into.
+	 * @param x
+	 *            The x coordinate to move the player into.
+	 * @param y
+	 *            The y coordinate to move the player into.
+	 */
+	Transporter(Game.Direction direction, Coordinate rx, Coordinate ry, Coordinate x, Coordinate y) {
+		this.direction = direction;
+		
+		this.rx = rx;
+		this.ry = ry;
+		this.x = x;
+		this.y = y;
+	}
+	
+	/**
+	 * Moves the player in the game given to the real rx, ry, x, and y coordinates
+	 * this <code>Transporter</code> points to, unless that would move the player
+	 * outside the room's boundaries.
+	 * 
+	 * @param game
+	 *            The {@link Game} to move the player in.
+	 * @return True if the player was moved, false if the coordinates were outside
+	 *         the room's boundaries.
+	 */
+	boolean transport(Game game) {
+		int x = this.x.resolve(game.newX);
+		int y = this.y.resolve(game.newY);
+		if (x >= Game.ROOM_WIDTH || x < 0 || y >= Game.ROOM_HEIGHT || y < 0) {
+			return false;
+		}
+		
+		game.rx = rx.resolve(game.rx);
+		game.ry = ry.resolve(game.ry);
+		game.newX = x;
+		game.newY = y;
+		return true;
+	}
+}
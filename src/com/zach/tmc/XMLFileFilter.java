@@ -6,7 +6,8 @@ import javax.swing.filechooser.FileFilter;
 
 /**
  * The <code>XMLFileFilter</code> class is a <code>FileFilter</code> that checks
- * for files that end with ".xml" and folders.
+ * for level files, which end with ".xml", ".tmcl" (compiled levels), or ".tmcp"
+ * (level packs), and folders.
  * 
  * @author Zach K
  */
@@ -14,7 +15,8 @@ public class XMLFileFilter extends FileFilter {
 
 	@Override
 	public boolean accept(File file) {
-		if (file.getName().endsWith(".xml") || file.isDirectory()) {
+		if (file.getName().endsWith(".xml") || file.getName().endsWith(BinaryLevelLoader.EXTENSION)
+				|| file.getName().endsWith(LevelPack.EXTENSION) || file.isDirectory()) {
 			return true;
 		} else {
 			return false;
@@ -23,7 +25,7 @@ public class XMLFileFilter extends FileFilter {
 
 	@Override
 	public String getDescription() {
-		return "eXtensible Markup Language Files (.xml)";
+		return "Level Files (.xml, .tmcl, .tmcp)";
 	}
 
 }
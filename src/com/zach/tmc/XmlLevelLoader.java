@@ -0,0 +1,450 @@
+package com.zach.tmc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The <code>XmlLevelLoader</code> class reads a level written in XML. Rather
+ * than parsing the whole level into a document and searching it, it reads the
+ * level once and streams through it with an {@link XMLStreamReader}. The first
+ * time a floor is asked for, the level is gone through once to find which
+ * element of the level each floor is; after that, a floor is read by streaming
+ * from the start of the level and skipping over the elements before it. The
+ * rooms of a floor are not built while the floor is read; only the position
+ * of each one among the elements of the floor is kept, and
+ * {@link #readRoom(int, int, char)} finds it the same way the first time the
+ * room is needed. Every reader starts at the start of the level, so it sees
+ * everything that comes before the element it is after, just as a reader of
+ * the whole level would.
+ *
+ * @author Zach K
+ */
+public class XmlLevelLoader extends LevelLoader {
+	/** The factory that creates the {@link XMLStreamReader}s for the level. */
+	private final XMLInputFactory factory = XMLInputFactory.newInstance();
+	
+	/** The bytes of the level, read once by {@link #readBytes()}. */
+	private volatile byte[] bytes;
+	/** The index of each floor element among the elements of the level, by its id, in the order they are written. */
+	private Map<String, Integer> floorIndexes;
+	
+	/**
+	 * Constructs an <code>XmlLevelLoader</code> for a level.
+	 *
+	 * @param levelPath
+	 *            The path to the level. Paths that start with "/" are resources
+	 *            inside the program.
+	 */
+	public XmlLevelLoader(String levelPath) {
+		super(levelPath);
+		
+		// Text is read in one piece, and levels cannot pull in outside files.
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		// Entities declared in the level's DOCTYPE are replaced, as they were when the level was read into a document.
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+		factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+	}
+	
+	/**
+	 * Reads the title, description, message, and version of the level. Only the
+	 * start of the level is read.
+	 *
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the level does not start with a level element.
+	 */
+	@Override
+	public void readHeader() throws IOException, XMLStreamException, IllegalArgumentException {
+		XMLStreamReader reader = createReader();
+		try {
+			readRoot(reader);
+			
+			title = getAttribute(reader, "title");
+			description = getAttribute(reader, "description");
+			message = getAttribute(reader, "message");
+			version = getAttribute(reader, "version");
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Reads a floor of the level, building its map and finding which element of
+	 * the floor each of its {@link Room}s is. The floors before it are skipped
+	 * over without being looked inside.
+	 *
+	 * @param floorNumber
+	 *            The number of the floor to read.
+	 * @return The floor that was read.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the floor does not exist or cannot be created with the data
+	 *             given, for a wide variety of reasons.
+	 */
+	@Override
+	public Floor loadFloor(int floorNumber) throws IOException, XMLStreamException, IllegalArgumentException {
+		Integer index = indexFloors().get(String.valueOf(floorNumber));
+		if (index == null) {
+			throw new IllegalArgumentException("Floor #" + floorNumber + " does not exist");
+		}
+		
+		XMLStreamReader reader = createReader();
+		try {
+			readRoot(reader);
+			skipTo(reader, index);
+			return readFloor(reader, floorNumber, index);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Lists the numbers of every floor in the level, in the order they are
+	 * written. Floors without a number for an id cannot be reached, so they are
+	 * left out.
+	 *
+	 * @return The numbers of the floors.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the level does not start with a level element.
+	 */
+	public List<Integer> listFloors() throws IOException, XMLStreamException, IllegalArgumentException {
+		List<Integer> floors = new ArrayList<Integer>();
+		for (String id : indexFloors().keySet()) {
+			try {
+				Integer number = Integer.valueOf(id);
+				if (!floors.contains(number)) {
+					floors.add(number);
+				}
+			} catch (NumberFormatException e) {
+				// This floor cannot be reached, so it is left out.
+			}
+		}
+		return floors;
+	}
+	
+	/**
+	 * Reads the bytes of the level, unless they have already been read.
+	 *
+	 * @return The bytes of the level.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 */
+	private synchronized byte[] readBytes() throws IOException {
+		if (bytes == null) {
+			bytes = readAll(open(levelPath));
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Goes through the level once to find which element of the level each floor
+	 * is, unless that has already been done. Only the first floor with each id is
+	 * kept.
+	 *
+	 * @return The index of each floor element among the elements of the level,
+	 *         by its id.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the level does not start with a level element.
+	 */
+	private synchronized Map<String, Integer> indexFloors() throws IOException, XMLStreamException, IllegalArgumentException {
+		if (floorIndexes == null) {
+			Map<String, Integer> indexes = new LinkedHashMap<String, Integer>();
+			XMLStreamReader reader = createReader();
+			try {
+				readRoot(reader);
+				
+				// Count every element of the level, so each floor can be found again by skipping that many.
+				for (int index = 0; nextChild(reader); index++) {
+					if (reader.getLocalName().equals("floor")) {
+						String id = getAttribute(reader, "id");
+						if (!indexes.containsKey(id)) {
+							indexes.put(id, index);
+						}
+					}
+					skipElement(reader);
+				}
+			} finally {
+				reader.close();
+			}
+			floorIndexes = indexes;
+		}
+		return floorIndexes;
+	}
+	
+	/**
+	 * Reads the floor element the reader is at.
+	 *
+	 * @param reader
+	 *            The reader, at the start of the floor element. It is left at the
+	 *            end of the floor element.
+	 * @param floorNumber
+	 *            The number of the floor.
+	 * @param floorIndex
+	 *            The index of the floor element among the elements of the level.
+	 * @return The floor that was read.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the floor cannot be created with the data given.
+	 */
+	private Floor readFloor(XMLStreamReader reader, int floorNumber, int floorIndex) throws XMLStreamException, IllegalArgumentException {
+		String[] mapText = null;
+		int[] player = null;
+		Map<Character, RoomSource> rooms = new HashMap<Character, RoomSource>();
+		
+		// Count every element of the floor, so each room can be found again by skipping that many.
+		for (int index = 0; nextChild(reader); index++) {
+			String name = reader.getLocalName();
+			if (name.equals("map") && mapText == null) {
+				// Collect the main character map on the floor as an array of strings.
+				mapText = reader.getElementText().trim().split("\n");
+			} else if (name.equals("player") && player == null) {
+				// Collect the player's starting coordinates.
+				player = new int[] { Integer.parseInt(getAttribute(reader, "rx")), Integer.parseInt(getAttribute(reader, "ry")),
+						Integer.parseInt(getAttribute(reader, "x")), Integer.parseInt(getAttribute(reader, "y")) };
+				skipElement(reader);
+			} else if (name.length() == 1 && Character.isLetter(name.charAt(0)) && !rooms.containsKey(name.charAt(0))) {
+				// Every element named by a single letter is a room. Only its position is kept, so it can be built later.
+				rooms.put(name.charAt(0), new XmlRoomSource(this, floorIndex, index));
+				skipElement(reader);
+			} else {
+				skipElement(reader);
+			}
+		}
+		
+		if (mapText == null) {
+			throw new IllegalArgumentException("There is no map on floor #" + floorNumber);
+		}
+		
+		// Turn the map into a 2 dimensional character array, making sure every room in it exists.
+		char[][] map = new char[mapText.length][];
+		for (int i = 0; i < map.length; i++) {
+			map[i] = mapText[i].trim().toCharArray();
+			for (char c : map[i]) {
+				if (Character.isLetter(c) && rooms.get(c) == null) {
+					throw new IllegalArgumentException("There is no room '" + c + "' on floor #" + floorNumber);
+				}
+			}
+		}
+		
+		if (player == null) {
+			return new Floor(floorNumber, map, rooms);
+		}
+		return new Floor(floorNumber, map, rooms, player[0], player[1], player[2], player[3]);
+	}
+	
+	/**
+	 * Builds a {@link RoomDefinition} from its element in the level.
+	 *
+	 * @param floorIndex
+	 *            The index of the floor element among the elements of the level.
+	 * @param roomIndex
+	 *            The index of the room's element among the elements of the floor.
+	 * @param reference
+	 *            The reference character of the room.
+	 * @return The room that was built.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the room cannot be created with the data given.
+	 */
+	RoomDefinition readRoom(int floorIndex, int roomIndex, char reference) throws IOException, XMLStreamException, IllegalArgumentException {
+		XMLStreamReader reader = createReader();
+		try {
+			readRoot(reader);
+			skipTo(reader, floorIndex);
+			skipTo(reader, roomIndex);
+			return new RoomDefinition(reader, reference, keyTable);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Creates a reader for the level, at its start. Floors may be read on more
+	 * than one thread at once, so the factory is only used by one of them at a
+	 * time.
+	 *
+	 * @return The reader.
+	 * @throws IOException
+	 *             If the level cannot be opened.
+	 * @throws XMLStreamException
+	 *             If the reader cannot be created.
+	 */
+	private XMLStreamReader createReader() throws IOException, XMLStreamException {
+		ByteArrayInputStream source = new ByteArrayInputStream(readBytes());
+		synchronized (factory) {
+			return factory.createXMLStreamReader(source);
+		}
+	}
+	
+	/**
+	 * Moves the reader to the root element of the level, skipping over the
+	 * DOCTYPE, comments, and processing instructions before it.
+	 *
+	 * @param reader
+	 *            The reader, at the start of the level.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the root element is not a level element.
+	 */
+	private static void readRoot(XMLStreamReader reader) throws XMLStreamException, IllegalArgumentException {
+		if (!nextChild(reader) || !reader.getLocalName().equals("level")) {
+			throw new IllegalArgumentException("There is no level element");
+		}
+	}
+	
+	/**
+	 * Gets the value of an attribute of the element the reader is at.
+	 *
+	 * @param reader
+	 *            The reader, at the start of an element.
+	 * @param name
+	 *            The name of the attribute.
+	 * @return The value of the attribute, or an empty string if it does not
+	 *         exist.
+	 */
+	static String getAttribute(XMLStreamReader reader, String name) {
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? "" : value;
+	}
+	
+	/**
+	 * Moves the reader to the start of the next child of the element it is in,
+	 * skipping over any text, comments, and anything else that is not an
+	 * element.
+	 *
+	 * @param reader
+	 *            The reader, inside an element. The last child read must have been
+	 *            read up to its end.
+	 * @return True if the reader is at the start of a child element, false if the
+	 *         reader is at the end of the element it was in.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 */
+	static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				return false;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Moves the reader to the start of a child of the element it is in, skipping
+	 * over the children before it without looking inside them.
+	 *
+	 * @param reader
+	 *            The reader, at the start of an element.
+	 * @param index
+	 *            The index of the child among the elements in the element.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 * @throws IllegalArgumentException
+	 *             If the element does not have that many children.
+	 */
+	private static void skipTo(XMLStreamReader reader, int index) throws XMLStreamException, IllegalArgumentException {
+		for (int i = 0; i <= index; i++) {
+			if (!nextChild(reader)) {
+				throw new IllegalArgumentException("There is no element #" + index + " in the " + reader.getLocalName() + " element");
+			}
+			if (i < index) {
+				skipElement(reader);
+			}
+		}
+	}
+	
+	/**
+	 * Moves the reader to the end of the element it is at, skipping over all of
+	 * its children.
+	 *
+	 * @param reader
+	 *            The reader, at the start of an element.
+	 * @throws XMLStreamException
+	 *             If the level is not well formed.
+	 */
+	static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+}
+
+/**
+ * The <code>XmlRoomSource</code> class is a {@link RoomSource} that points to
+ * the element a {@link RoomDefinition} was written in.
+ * 
+ * @author Zach K
+ */
+class XmlRoomSource extends RoomSource {
+	/** The {@link XmlLevelLoader} that holds the element. */
+	final XmlLevelLoader loader;
+	/** The index of the floor element among the elements of the level. */
+	final int floorIndex;
+	/** The index of the room's element among the elements of the floor. */
+	final int roomIndex;
+	
+	/**
+	 * Constructs an <code>XmlRoomSource</code>.
+	 * 
+	 * @param loader
+	 *            The {@link XmlLevelLoader} that holds the element.
+	 * @param floorIndex
+	 *            The index of the floor element among the elements of the level.
+	 * @param roomIndex
+	 *            The index of the room's element among the elements of the
+	 *            floor.
+	 */
+	XmlRoomSource(XmlLevelLoader loader, int floorIndex, int roomIndex) {
+		this.loader = loader;
+		this.floorIndex = floorIndex;
+		this.roomIndex = roomIndex;
+	}
+	
+	@Override
+	RoomDefinition build(char reference) throws IllegalArgumentException {
+		try {
+			return loader.readRoom(floorIndex, roomIndex, reference);
+		} catch (IOException | XMLStreamException e) {
+			throw new IllegalArgumentException("Room '" + reference + "' could not be read", e);
+		}
+	}
+}